@@ -29,6 +29,10 @@ class MainActivity : AppCompatActivity(), AppMenuPropertiesDelegate {
         val handler = AppMenuHandler(this, this, R.menu.menu)
         val helper = AppMenuButtonHelper(handler)
         btnAdvanced.setOnTouchListener(helper)
+
+        if (savedInstanceState == null && intent.getBooleanExtra(ProfileScenario.EXTRA_RUN, false)) {
+            ProfileScenario(this, btnAdvanced, handler, R.id.normal2).start()
+        }
     }
 
     override fun shouldShowAppMenu(): Boolean = true
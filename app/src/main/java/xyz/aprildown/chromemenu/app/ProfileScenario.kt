@@ -0,0 +1,96 @@
+package xyz.aprildown.chromemenu.app
+
+import android.app.Activity
+import android.os.Handler
+import android.os.Looper
+import android.os.SystemClock
+import android.util.Log
+import android.view.MotionEvent
+import android.view.View
+import xyz.aprildown.chromemenu.AppMenuHandler
+
+/**
+ * Drives the menu through the paths covered by the library's baseline profile: showing the
+ * menu, binding rows, dragging across them with auto-scroll, highlighting an item and selecting
+ * one. scripts/generate-baseline-profile.sh starts it with [EXTRA_RUN] and waits for [DONE_LOG].
+ */
+class ProfileScenario(
+    private val activity: Activity,
+    private val menuButton: View,
+    private val menuHandler: AppMenuHandler,
+    private val highlightItemId: Int
+) {
+
+    companion object {
+        const val EXTRA_RUN = "xyz.aprildown.chromemenu.app.extra.RUN_PROFILE_SCENARIO"
+        const val DONE_LOG = "Profile scenario done"
+
+        private const val TAG = "ProfileScenario"
+        private const val ITERATIONS = 20
+        private const val FRAME_MS = 16L
+        private const val MOVE_STEPS = 40
+        private const val SETTLE_MS = 600L
+    }
+
+    private val uiHandler = Handler(Looper.getMainLooper())
+    private val buttonLocation = IntArray(2)
+    private var iteration = 0
+    private var downTime = 0L
+
+    fun start() {
+        // Wait for the first layout so the button has a position on screen.
+        menuButton.post { runIteration() }
+    }
+
+    private fun runIteration() {
+        if (iteration == ITERATIONS || activity.isFinishing) {
+            Log.i(TAG, DONE_LOG)
+            activity.finish()
+            return
+        }
+        iteration++
+
+        // Every other session opens with a highlighted item.
+        if (iteration % 2 == 0) menuHandler.setMenuHighlight(highlightItemId)
+
+        menuButton.getLocationOnScreen(buttonLocation)
+        val startX = buttonLocation[0] + menuButton.width / 2f
+        val startY = buttonLocation[1] + menuButton.height / 2f
+        // Move down to the bottom edge of the screen so the list auto-scrolls, then back up.
+        val bottomY = activity.resources.displayMetrics.heightPixels - 1f
+        // Rows are laid out to the start of the anchor, so move into the menu horizontally too.
+        val menuX = startX - menuButton.width
+
+        downTime = SystemClock.uptimeMillis()
+        dispatch(MotionEvent.ACTION_DOWN, startX, startY)
+        for (step in 1..MOVE_STEPS) {
+            val fraction = step.toFloat() / MOVE_STEPS
+            uiHandler.postDelayed({
+                dispatch(MotionEvent.ACTION_MOVE, menuX, startY + (bottomY - startY) * fraction)
+            }, step * FRAME_MS)
+        }
+        for (step in 1..MOVE_STEPS) {
+            val fraction = step.toFloat() / MOVE_STEPS
+            uiHandler.postDelayed({
+                val y = bottomY - (bottomY - startY) / 2 * fraction
+                dispatch(MotionEvent.ACTION_MOVE, menuX, y)
+            }, (MOVE_STEPS + step) * FRAME_MS)
+        }
+        val upDelay = (MOVE_STEPS * 2 + 1) * FRAME_MS
+        uiHandler.postDelayed({
+            dispatch(MotionEvent.ACTION_UP, menuX, (startY + bottomY) / 2)
+            // The up event selects the hovered item, which dismisses the menu. Hide it in case the
+            // finger was lifted between rows.
+            menuHandler.hideAppMenu()
+        }, upDelay)
+        uiHandler.postDelayed({ runIteration() }, upDelay + SETTLE_MS)
+    }
+
+    private fun dispatch(action: Int, rawX: Float, rawY: Float) {
+        // The button helper reads raw coordinates, which equal the given ones for events that
+        // haven't gone through a window.
+        val event = MotionEvent.obtain(downTime, SystemClock.uptimeMillis(), action, rawX, rawY, 0)
+        menuButton.dispatchTouchEvent(event)
+        event.recycle()
+    }
+}
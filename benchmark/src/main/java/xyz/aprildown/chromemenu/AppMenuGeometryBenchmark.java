@@ -0,0 +1,61 @@
+package xyz.aprildown.chromemenu;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the popup height and position math run every time the menu is shown, with the
+ * dimensions of a 1080x1920 phone at xxhdpi.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Thread)
+public class AppMenuGeometryBenchmark {
+    private static final int APP_TOP = 72;
+    private static final int APP_WIDTH = 1080;
+    private static final int APP_BOTTOM = 1920;
+    private static final int ANCHOR_Y = 84;
+    private static final int ANCHOR_SIZE = 144;
+    private static final int PADDING = 24;
+    private static final int POPUP_WIDTH = 768;
+
+    /**
+     * 8 items fit on the screen, 40 don't and make the last visible row partial.
+     */
+    @Param({"8", "40"})
+    public int itemCount;
+    @Param({"false", "true"})
+    public boolean isAnchorAtBottom;
+
+    private final AppMenuGeometry mGeometry = new AppMenuGeometry(144, 3, 36, 12);
+    private final int[] mPosition = new int[2];
+
+    @Benchmark
+    public int menuHeight() {
+        return mGeometry.computeMenuHeight(itemCount, APP_TOP, APP_BOTTOM - APP_TOP, APP_BOTTOM,
+                isAnchorAtBottom ? APP_BOTTOM - ANCHOR_SIZE : ANCHOR_Y, ANCHOR_SIZE, PADDING,
+                PADDING, 0, 0, false);
+    }
+
+    @Benchmark
+    public int[] popupPosition() {
+        int popupHeight = menuHeight();
+        mGeometry.computePopupPosition(AppMenuGeometry.ROTATION_0, APP_WIDTH, APP_BOTTOM,
+                PADDING, APP_WIDTH - ANCHOR_SIZE, ANCHOR_Y - APP_TOP, ANCHOR_Y, ANCHOR_SIZE,
+                POPUP_WIDTH, popupHeight, isAnchorAtBottom, false, false, mPosition);
+        return mPosition;
+    }
+}
@@ -0,0 +1,61 @@
+package xyz.aprildown.chromemenu;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks resolving the rows under the finger, which happens for every touch event while
+ * dragging. Like the menu, every invocation collects the bounds of the visible rows again before
+ * resolving a point. The first row holds a row of icon buttons.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Thread)
+public class DragHitTesterBenchmark {
+    private static final int MENU_LEFT = 300;
+    private static final int MENU_RIGHT = 1068;
+    private static final int MENU_TOP = 100;
+    private static final int ROW_HEIGHT = 147;
+    private static final int BUTTON_COUNT = 5;
+
+    /**
+     * The number of visible rows.
+     */
+    @Param({"6", "12"})
+    public int rowCount;
+
+    private final DragHitTester mHitTester = new DragHitTester();
+    private int mTouchY = MENU_TOP;
+
+    @Benchmark
+    public int resolve() {
+        mHitTester.clear();
+        int buttonWidth = (MENU_RIGHT - MENU_LEFT) / BUTTON_COUNT;
+        for (int i = 0; i < BUTTON_COUNT; i++) {
+            int left = MENU_LEFT + i * buttonWidth;
+            mHitTester.add(left, MENU_TOP, left + buttonWidth, MENU_TOP + ROW_HEIGHT, true);
+        }
+        for (int i = 1; i < rowCount; i++) {
+            int top = MENU_TOP + i * ROW_HEIGHT;
+            // Every fourth row is disabled.
+            mHitTester.add(MENU_LEFT, top, MENU_RIGHT, top + ROW_HEIGHT, i % 4 != 0);
+        }
+
+        // Sweep the finger down the menu, one pixel step per event.
+        mTouchY = mTouchY >= MENU_TOP + rowCount * ROW_HEIGHT ? MENU_TOP : mTouchY + 1;
+        return mHitTester.resolve(MENU_LEFT + 400, mTouchY);
+    }
+}
@@ -0,0 +1,55 @@
+package xyz.aprildown.chromemenu;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the interpolators evaluated on every frame of the menu animations and of the
+ * highlight pulse. Each invocation interpolates a fixed set of inputs spread over, and slightly
+ * beyond, the [0, 1] range.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Thread)
+public class InterpolatorBenchmark {
+    private static final int INPUT_COUNT = 256;
+
+    private final float[] mInputs = new float[INPUT_COUNT];
+    private PulseInterpolator mPulseInterpolator;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        for (int i = 0; i < INPUT_COUNT; i++) mInputs[i] = random.nextFloat() * 1.1f - 0.05f;
+        mPulseInterpolator = new PulseInterpolator(BakedBezierInterpolator.FADE_IN_CURVE);
+    }
+
+    @Benchmark
+    public void bakedBezier(Blackhole blackhole) {
+        for (float input : mInputs) {
+            blackhole.consume(BakedBezierInterpolator.FADE_IN_CURVE.getInterpolation(input));
+        }
+    }
+
+    @Benchmark
+    public void pulse(Blackhole blackhole) {
+        for (float input : mInputs) {
+            blackhole.consume(mPulseInterpolator.getInterpolation(input));
+        }
+    }
+}
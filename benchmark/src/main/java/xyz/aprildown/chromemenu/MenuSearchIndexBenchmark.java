@@ -0,0 +1,77 @@
+package xyz.aprildown.chromemenu;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks searching a menu of 1,000 items. The index is built on the first keystroke, so
+ * {@link #buildAndType()} is the worst keystroke, while {@link #keystroke()} is each one after it.
+ * Both have to fit in a frame.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Thread)
+public class MenuSearchIndexBenchmark {
+    private static final int ITEM_COUNT = 1000;
+    private static final String[] WORDS = {
+            "bookmark", "history", "download", "settings", "share", "print", "find", "page",
+            "desktop", "site", "translate", "reader", "mode", "tab", "window", "incognito",
+            "recent", "help", "feedback", "zoom", "offline", "copy", "link", "image",
+    };
+
+    /**
+     * The text typed, one character per keystroke.
+     */
+    @Param({"settings", "xyz", "tab window"})
+    public String query;
+
+    private CharSequence[] mTitles;
+    private MenuSearchIndex mIndex;
+    private int mTyped;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        mTitles = new CharSequence[ITEM_COUNT];
+        for (int i = 0; i < ITEM_COUNT; i++) {
+            StringBuilder title = new StringBuilder();
+            int wordCount = 2 + random.nextInt(3);
+            for (int j = 0; j < wordCount; j++) {
+                if (j > 0) title.append(' ');
+                title.append(WORDS[random.nextInt(WORDS.length)]);
+            }
+            title.append(' ').append(i);
+            mTitles[i] = title.toString();
+        }
+        mIndex = new MenuSearchIndex(mTitles);
+    }
+
+    @Benchmark
+    public int buildAndType() {
+        return new MenuSearchIndex(mTitles).filter(query.substring(0, 1));
+    }
+
+    /**
+     * Types the query one character at a time, then clears it and starts over.
+     */
+    @Benchmark
+    public int keystroke() {
+        mTyped = mTyped == query.length() ? 0 : mTyped + 1;
+        return mIndex.filter(query.substring(0, mTyped));
+    }
+}
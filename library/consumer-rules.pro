@@ -0,0 +1,4 @@
+# AppMenuIdlingResource implements Espresso's IdlingResource, which the library only compiles
+# against. Apps that shrink their code without Espresso never load the class, so don't fail
+# their build over the missing reference.
+-dontwarn androidx.test.espresso.**
@@ -0,0 +1,154 @@
+package xyz.aprildown.chromemenu;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.view.Choreographer;
+
+/**
+ * Watches the frames drawn while the App Menu opens and while it is dragged through, and steps
+ * the effects of later menus down one {@link AppMenuQualityLevel} after a session that dropped too
+ * many frames. After several smooth sessions in a row it steps back up one level.
+ * <p>
+ * Frames are timed with {@link Choreographer} callbacks on the UI thread. The popup window has no
+ * {@link android.view.Window} of its own, so {@link android.view.FrameMetrics} can't observe it.
+ */
+class AdaptiveQualityController implements Choreographer.FrameCallback {
+    /**
+     * How long the frames are watched after the menu is shown without dragging. Covers the window
+     * animation and the staggered row animations.
+     */
+    private static final long ENTER_MONITOR_DURATION_MS = 600;
+    /**
+     * Sessions with fewer frames than this don't say enough to change the level.
+     */
+    private static final int MIN_SESSION_FRAMES = 10;
+    private static final float BAD_DROPPED_FRAME_RATIO = 0.2f;
+    private static final float GOOD_DROPPED_FRAME_RATIO = 0.05f;
+    private static final int GOOD_SESSIONS_TO_STEP_UP = 3;
+    private static final long NANOS_PER_SECOND = 1000000000L;
+
+    private final Handler mUiHandler = new Handler(Looper.getMainLooper());
+    private final Runnable mStopRunnable = new Runnable() {
+        @Override
+        public void run() {
+            stopMonitoring();
+        }
+    };
+
+    @AppMenuQualityLevel
+    private int mLevel = AppMenuQualityLevel.FULL;
+    private int mGoodSessions;
+
+    private boolean mMonitoring;
+    private long mFrameIntervalNanos;
+    private long mLastFrameTimeNanos;
+    private int mFrames;
+    private int mDroppedFrames;
+
+    /**
+     * @return The current quality level.
+     */
+    @AppMenuQualityLevel
+    int getLevel() {
+        return mLevel;
+    }
+
+    /**
+     * Goes back to {@link AppMenuQualityLevel#FULL} and forgets the previous sessions.
+     */
+    void reset() {
+        mUiHandler.removeCallbacks(mStopRunnable);
+        if (mMonitoring) Choreographer.getInstance().removeFrameCallback(this);
+        mMonitoring = false;
+        mFrames = 0;
+        mDroppedFrames = 0;
+        mLevel = AppMenuQualityLevel.FULL;
+        mGoodSessions = 0;
+    }
+
+    /**
+     * @param profile The profile chosen for the device.
+     * @return {@code profile} without the effects turned off by the current level.
+     */
+    AppMenuFeatureProfile apply(AppMenuFeatureProfile profile) {
+        if (mLevel == AppMenuQualityLevel.FULL) return profile;
+
+        AppMenuFeatureProfile.Builder builder = new AppMenuFeatureProfile.Builder(profile);
+        builder.setItemEnterAnimationEnabled(false);
+        if (mLevel >= AppMenuQualityLevel.NO_WINDOW_ANIMATION) {
+            builder.setWindowAnimationEnabled(false);
+        }
+        if (mLevel >= AppMenuQualityLevel.NO_FADING_EDGE) builder.setFadingEdgeEnabled(false);
+        if (mLevel >= AppMenuQualityLevel.NO_PULSE) builder.setPulseFrameRate(0);
+        return builder.build();
+    }
+
+    /**
+     * Starts watching the frames of a new session.
+     *
+     * @param refreshRate   The refresh rate of the display, in frames per second.
+     * @param startDragging Whether the menu is being dragged through. If so the frames are watched
+     *                      until the menu is dismissed, otherwise only while it opens.
+     */
+    void onMenuShown(float refreshRate, boolean startDragging) {
+        reportSession();
+        mFrameIntervalNanos = (long) (NANOS_PER_SECOND / (refreshRate > 0 ? refreshRate : 60.f));
+        mLastFrameTimeNanos = 0;
+        mFrames = 0;
+        mDroppedFrames = 0;
+        mMonitoring = true;
+        Choreographer.getInstance().postFrameCallback(this);
+        if (!startDragging) mUiHandler.postDelayed(mStopRunnable, ENTER_MONITOR_DURATION_MS);
+    }
+
+    /**
+     * Stops watching the frames and updates the level for the next menu.
+     */
+    void onMenuDismissed() {
+        reportSession();
+    }
+
+    @Override
+    public void doFrame(long frameTimeNanos) {
+        if (!mMonitoring) return;
+
+        if (mLastFrameTimeNanos != 0) {
+            long delta = frameTimeNanos - mLastFrameTimeNanos;
+            mFrames++;
+            // A frame that took n intervals means n - 1 vsyncs went by without a new frame.
+            mDroppedFrames += Math.max(0, Math.round((float) delta / mFrameIntervalNanos) - 1);
+        }
+        mLastFrameTimeNanos = frameTimeNanos;
+        Choreographer.getInstance().postFrameCallback(this);
+    }
+
+    private void stopMonitoring() {
+        if (!mMonitoring) return;
+        mUiHandler.removeCallbacks(mStopRunnable);
+        Choreographer.getInstance().removeFrameCallback(this);
+        mMonitoring = false;
+    }
+
+    private void reportSession() {
+        stopMonitoring();
+        int frames = mFrames;
+        int droppedFrames = mDroppedFrames;
+        mFrames = 0;
+        mDroppedFrames = 0;
+        if (frames < MIN_SESSION_FRAMES) return;
+
+        float droppedRatio = (float) droppedFrames / (frames + droppedFrames);
+        if (droppedRatio > BAD_DROPPED_FRAME_RATIO) {
+            mGoodSessions = 0;
+            if (mLevel < AppMenuQualityLevel.NO_PULSE) mLevel++;
+        } else if (droppedRatio < GOOD_DROPPED_FRAME_RATIO) {
+            mGoodSessions++;
+            if (mGoodSessions >= GOOD_SESSIONS_TO_STEP_UP && mLevel > AppMenuQualityLevel.FULL) {
+                mLevel--;
+                mGoodSessions = 0;
+            }
+        } else {
+            mGoodSessions = 0;
+        }
+    }
+}
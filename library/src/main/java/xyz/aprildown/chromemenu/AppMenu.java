@@ -5,34 +5,45 @@
 package xyz.aprildown.chromemenu;
 
 import android.animation.Animator;
+import android.animation.AnimatorListenerAdapter;
 import android.animation.AnimatorSet;
+import android.animation.ObjectAnimator;
 import android.annotation.SuppressLint;
 import android.content.Context;
 import android.content.res.Resources;
 import android.graphics.Rect;
 import android.graphics.drawable.Drawable;
 import android.os.Build;
+import android.os.SystemClock;
+import android.text.Editable;
+import android.text.TextWatcher;
+import android.util.SparseArray;
 import android.view.Gravity;
 import android.view.KeyEvent;
 import android.view.LayoutInflater;
 import android.view.Menu;
 import android.view.MenuItem;
-import android.view.Surface;
+import android.view.MotionEvent;
+import android.view.SubMenu;
 import android.view.View;
 import android.view.View.MeasureSpec;
 import android.view.View.OnKeyListener;
 import android.view.ViewGroup;
 import android.view.ViewStub;
-import android.view.WindowManager;
+import android.view.ViewAnimationUtils;
+import android.view.ViewTreeObserver;
 import android.widget.AdapterView;
 import android.widget.AdapterView.OnItemClickListener;
+import android.widget.EditText;
 import android.widget.ImageButton;
 import android.widget.ListView;
 import android.widget.PopupWindow;
 import android.widget.Toast;
 
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 import androidx.annotation.IdRes;
 
@@ -44,24 +55,77 @@ import androidx.annotation.IdRes;
  */
 public class AppMenu implements OnItemClickListener, OnKeyListener {
 
-    private static final float LAST_ITEM_SHOW_FRACTION = 0.5f;
+    /**
+     * Sub menu constants. While dragging, resting on a row that opens a sub menu builds the
+     * level after the preload dwell and opens it after the open dwell.
+     */
+    private static final int SUB_MENU_SLIDE_DURATION_MS = 200;
+    private static final int REVEAL_DURATION_MS = 350;
+    private static final int SUB_MENU_PRELOAD_DWELL_MS = 100;
+    private static final int SUB_MENU_OPEN_DWELL_MS = 350;
+    /**
+     * Sub menus with more children than this are opened as a new level even if they weren't
+     * registered as cascading. Smaller ones keep their row of buttons or standard row.
+     */
+    private static final int MAX_BUTTON_ROW_SIZE = 5;
 
     private final Menu mMenu;
-    private final int mItemRowHeight;
-    private final int mItemDividerHeight;
+    private final AppMenuGeometry mGeometry;
     private final int mVerticalFadeDistance;
-    private final int mNegativeSoftwareVerticalOffset;
-    private final int mNegativeVerticalOffsetNotTopAnchored;
-    private final int[] mTempLocation;
+    /**
+     * Where the anchor view is in its window and on screen, read once per show.
+     */
+    private final int[] mAnchorWindowLocation = new int[2];
+    private final int[] mAnchorScreenLocation = new int[2];
+    private final AnchorTracker mAnchorTracker = new AnchorTracker();
+    private final int[] mPopupPosition = new int[2];
 
-    private PopupWindow mPopup;
-    private ListView mListView;
+    private AppMenuWindow mPopup;
+    private AppMenuListView mListView;
     private AppMenuAdapter mAdapter;
     private AppMenuHandler mHandler;
     private boolean mIsByPermanentButton;
+    /**
+     * Whether the activity window also receives the touches outside the menu, see
+     * {@link #onHostTouchEvent(MotionEvent)}. Kept after dismissal for the touch that dismissed it.
+     */
+    private boolean mReceivesHostTouches;
+    /**
+     * The event time of the last touch outside the menu reported by its window.
+     */
+    private long mOutsideTouchTime = -1;
+    private boolean mIsConsumingHostGesture;
     private AnimatorSet mMenuItemEnterAnimator;
-    /*private AnimatorListener mAnimationHistogramRecorder = AnimationFrameTimeHistogram
-            .getAnimatorRecorder("WrenchMenu.OpeningAnimationFrameTimes");*/
+    /**
+     * How the content animates in while the menu is showing, after the feature profile is applied.
+     */
+    private @AppMenuEnterAnimationMode int mEnterAnimationMode;
+    private boolean mShowFromBottom;
+    private List<MenuItem> mVisibleMenuItems;
+    private EditText mSearchField;
+    /**
+     * Index of {@link #mVisibleMenuItems}. Built on the first keystroke and dropped whenever the
+     * visible items change.
+     */
+    private MenuSearchIndex mSearchIndex;
+    /**
+     * The effects and cache sizes used while the menu is showing.
+     */
+    private AppMenuFeatureProfile mFeatureProfile;
+    /**
+     * The items whose sub menus are open, outermost first. The last one is the level shown.
+     */
+    private final List<MenuItem> mOpenSubMenus = new ArrayList<>();
+    /**
+     * The visible items of the sub menus built while the menu is showing, by the id of their
+     * parent. Levels are built the first time they are needed and dropped on dismiss.
+     */
+    private final SparseArray<List<MenuItem>> mSubMenuLevels = new SparseArray<>();
+    /**
+     * The items already reported to the {@link AppMenuItemHoverListener} while the menu is
+     * showing.
+     */
+    private final Set<MenuItem> mHoveredItems = new HashSet<>();
 
     /**
      * Creates and sets up the App Menu.
@@ -76,25 +140,20 @@ public class AppMenu implements OnItemClickListener, OnKeyListener {
             Resources res) {
         mMenu = menu;
 
-        mItemRowHeight = itemRowHeight;
-        if (mItemRowHeight <= 0) {
+        if (itemRowHeight <= 0) {
             throw new IllegalArgumentException("ItemRowHeight must be positive");
         }
 
         mHandler = handler;
 
-        mItemDividerHeight = itemDividerHeight;
-        if (mItemDividerHeight < 0) {
+        if (itemDividerHeight < 0) {
             throw new IllegalArgumentException("ItemDividerHeight must be positive");
         }
 
-        mNegativeSoftwareVerticalOffset =
-                res.getDimensionPixelSize(R.dimen.menu_negative_software_vertical_offset);
+        mGeometry = new AppMenuGeometry(itemRowHeight, itemDividerHeight,
+                res.getDimensionPixelSize(R.dimen.menu_negative_software_vertical_offset),
+                res.getDimensionPixelSize(R.dimen.menu_negative_vertical_offset_not_top_anchored));
         mVerticalFadeDistance = res.getDimensionPixelSize(R.dimen.menu_vertical_fade_distance);
-        mNegativeVerticalOffsetNotTopAnchored =
-                res.getDimensionPixelSize(R.dimen.menu_negative_vertical_offset_not_top_anchored);
-
-        mTempLocation = new int[2];
     }
 
     /**
@@ -136,8 +195,8 @@ public class AppMenu implements OnItemClickListener, OnKeyListener {
      * changed.  This should be called if icons, titles, etc. are changing for a particular menu
      * item while the menu is open.
      *
-     * @param menuRowId The id of the menu item to change.  This must be a row id and not a child
-     *                  id.
+     * @param menuRowId The id of the menu item to change.  This can be a row id or the id of a
+     *                  child of a button row.
      */
     void menuItemContentChanged(int menuRowId) {
         // Make sure we have all the valid state objects we need.
@@ -146,17 +205,11 @@ public class AppMenu implements OnItemClickListener, OnKeyListener {
         }
 
         // Calculate the item index.
-        int index = -1;
-        int menuSize = mMenu.size();
-        for (int i = 0; i < menuSize; i++) {
-            if (mMenu.getItem(i).getItemId() == menuRowId) {
-                index = i;
-                break;
-            }
-        }
+        int index = mAdapter.getPositionForItemId(menuRowId);
         if (index == -1) return;
 
-        // Check if the item is visible.
+        // Check if the item is visible. List positions include the header views.
+        index += mListView.getHeaderViewsCount();
         int startIndex = mListView.getFirstVisiblePosition();
         int endIndex = mListView.getLastVisiblePosition();
         if (index < startIndex || index > endIndex) return;
@@ -169,57 +222,258 @@ public class AppMenu implements OnItemClickListener, OnKeyListener {
         mListView.getAdapter().getView(index, view, mListView);
     }
 
-    private int[] getPopupPosition(int screenRotation, Rect appRect, Rect padding, View anchorView,
-                                   int popupWidth, int popupHeight, boolean isAnchorAtBottom) {
-        anchorView.getLocationInWindow(mTempLocation);
-        int anchorViewX = mTempLocation[0];
-        int anchorViewY = mTempLocation[1];
-
-        int[] offsets = new int[2];
-        // If we have a hardware menu button, locate the app menu closer to the estimated
-        // hardware menu button location.
-        if (mIsByPermanentButton) {
-            int horizontalOffset = -anchorViewX;
-            switch (screenRotation) {
-                case Surface.ROTATION_0:
-                case Surface.ROTATION_180:
-                    horizontalOffset += (appRect.width() - popupWidth) / 2;
-                    break;
-                case Surface.ROTATION_90:
-                    horizontalOffset += appRect.width() - popupWidth;
-                    break;
-                case Surface.ROTATION_270:
-                    break;
-                default:
-                    throw new IllegalStateException("Unknown screenRotation: " + screenRotation);
+    /**
+     * Extracts the visible items from the Menu again and updates the list in place. This should be
+     * called if items are shown or hidden while the menu is open.
+     */
+    void refreshMenuItems() {
+        if (mAdapter == null) return;
+        mSubMenuLevels.clear();
+        showCurrentLevel();
+    }
+
+    /**
+     * @return Whether clicking the item opens its sub menu as a new level of the menu instead of
+     * showing the children as a row of buttons or dispatching the item. A sub menu without visible
+     * children never opens.
+     */
+    boolean isCascadingSubMenu(MenuItem item) {
+        if (!item.hasSubMenu()) return false;
+        Menu subMenu = item.getSubMenu();
+        if (!hasVisibleItem(subMenu)) return false;
+        return subMenu.size() > MAX_BUTTON_ROW_SIZE
+                || mHandler.isCascadingSubMenu(item.getItemId());
+    }
+
+    private static boolean hasVisibleItem(Menu menu) {
+        for (int i = 0; i < menu.size(); ++i) {
+            if (menu.getItem(i).isVisible()) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Replaces the rows with the visible children of {@code parent}, sliding them in from the end
+     * of the menu.
+     */
+    void openSubMenu(MenuItem parent) {
+        if (mAdapter == null || !isCascadingSubMenu(parent)) return;
+        mOpenSubMenus.add(parent);
+        showCurrentLevel();
+        runLevelSlideAnimation(true);
+    }
+
+    /**
+     * Goes back to the parent level of the sub menu shown, sliding it in from the start of the
+     * menu.
+     *
+     * @return Whether a sub menu was shown.
+     */
+    boolean closeSubMenu() {
+        if (mAdapter == null || mOpenSubMenus.isEmpty()) return false;
+        mOpenSubMenus.remove(mOpenSubMenus.size() - 1);
+        showCurrentLevel();
+        runLevelSlideAnimation(false);
+        return true;
+    }
+
+    private void showCurrentLevel() {
+        MenuItem parent = mOpenSubMenus.isEmpty()
+                ? null : mOpenSubMenus.get(mOpenSubMenus.size() - 1);
+        mVisibleMenuItems = parent == null ? getVisibleMenuItems(mMenu) : getSubMenuLevel(parent);
+        mAdapter.setMenuItems(mVisibleMenuItems, parent);
+
+        // The index belongs to the previous level or snapshot of the menu.
+        mSearchIndex = null;
+        if (mSearchField != null) filterMenuItems(mSearchField.getText());
+    }
+
+    private List<MenuItem> getSubMenuLevel(MenuItem parent) {
+        List<MenuItem> menuItems = mSubMenuLevels.get(parent.getItemId());
+        if (menuItems == null) {
+            trimSubMenuLevels(mFeatureProfile.getMaxCachedSubMenuLevels() - 1);
+            menuItems = getVisibleMenuItems(parent.getSubMenu());
+            mSubMenuLevels.put(parent.getItemId(), menuItems);
+        }
+        return menuItems;
+    }
+
+    /**
+     * Drops built levels that aren't open until at most {@code maxLevels} are left.
+     */
+    private void trimSubMenuLevels(int maxLevels) {
+        for (int i = mSubMenuLevels.size() - 1; i >= 0 && mSubMenuLevels.size() > maxLevels; i--) {
+            if (!isSubMenuOpen(mSubMenuLevels.keyAt(i))) mSubMenuLevels.removeAt(i);
+        }
+    }
+
+    private boolean isSubMenuOpen(int itemId) {
+        for (int i = 0; i < mOpenSubMenus.size(); i++) {
+            if (mOpenSubMenus.get(i).getItemId() == itemId) return true;
+        }
+        return false;
+    }
+
+    private void runLevelSlideAnimation(boolean forward) {
+        if (mMenuItemEnterAnimator != null) mMenuItemEnterAnimator.cancel();
+        mHandler.onMenuLevelChanged();
+
+        boolean rtl = ApiCompatibilityUtils.isLayoutRtl(mListView);
+        float offsetX = mListView.getWidth() * (forward != rtl ? 1.f : -1.f);
+        mListView.setTranslationX(offsetX);
+        mListView.setAlpha(0.f);
+        mListView.animate()
+                .translationX(0.f)
+                .alpha(1.f)
+                .setDuration(SUB_MENU_SLIDE_DURATION_MS)
+                .setInterpolator(BakedBezierInterpolator.FADE_IN_CURVE);
+    }
+
+    /**
+     * Called by the drag helper while a row stays under the finger.
+     *
+     * @param view    The row under the finger.
+     * @param dwellMs How long the row has been under the finger.
+     * @return The dwell time at which this method should be called again for the same row, or -1
+     * if the row doesn't react to hovering.
+     */
+    long onItemHoverDwell(View view, long dwellMs) {
+        if (mAdapter == null) return -1;
+        Object target = view.getTag(R.id.menu_item_hover_target);
+        if (target instanceof MenuItem && isCascadingSubMenu((MenuItem) target)) {
+            MenuItem item = (MenuItem) target;
+            if (!item.isEnabled()) return -1;
+            if (dwellMs < SUB_MENU_PRELOAD_DWELL_MS) return SUB_MENU_PRELOAD_DWELL_MS;
+            if (dwellMs < SUB_MENU_OPEN_DWELL_MS) {
+                getSubMenuLevel(item);
+                return SUB_MENU_OPEN_DWELL_MS;
             }
-            offsets[0] = horizontalOffset;
-            // The menu is displayed above the anchored view, so shift the menu up by the bottom
-            // padding of the background.
-            offsets[1] = -padding.bottom;
-        } else {
-            offsets[1] = -mNegativeSoftwareVerticalOffset;
-
-            // If the anchor is at the bottom of the screen, align the popup with the bottom of the
-            // anchor. The anchor may not be fully visible, so
-            // (appRect.bottom - anchorViewLocationOnScreenY) is used to determine the visible
-            // bottom edge of the anchor view.
-            if (isAnchorAtBottom) {
-                anchorView.getLocationOnScreen(mTempLocation);
-                int anchorViewLocationOnScreenY = mTempLocation[1];
-                offsets[1] += appRect.bottom - anchorViewLocationOnScreenY - popupHeight;
-                offsets[1] -= mNegativeVerticalOffsetNotTopAnchored;
-                if (!mIsByPermanentButton) offsets[1] += padding.bottom;
+            openSubMenu(item);
+        } else if (view.getTag() instanceof AppMenuAdapter.SubMenuBackViewHolder) {
+            if (dwellMs < SUB_MENU_OPEN_DWELL_MS) return SUB_MENU_OPEN_DWELL_MS;
+            closeSubMenu();
+        } else if (target instanceof MenuItem) {
+            return onItemHovered((MenuItem) target, dwellMs);
+        }
+        return -1;
+    }
+
+    /**
+     * Reports an item to the {@link AppMenuItemHoverListener} once it has been under the finger
+     * for the dwell time, at most once per session.
+     *
+     * @return The dwell time at which to call again, or -1 if the item won't be reported.
+     */
+    private long onItemHovered(MenuItem item, long dwellMs) {
+        long hoverDwellMs = mHandler.getItemHoverDwellMs();
+        if (hoverDwellMs < 0 || !item.isEnabled() || isMenuItemPending(item.getItemId())
+                || mHoveredItems.contains(item)) {
+            return -1;
+        }
+        if (dwellMs < hoverDwellMs) return hoverDwellMs;
+        mHoveredItems.add(item);
+        mHandler.onMenuItemHovered(item, dwellMs);
+        return -1;
+    }
+
+    /**
+     * Shows only the rows whose title, or the title of one of their children, contains
+     * {@code query}. The rows are filtered in place without touching the popup.
+     */
+    private void filterMenuItems(CharSequence query) {
+        if (mAdapter == null) return;
+        if (mSearchIndex == null) {
+            if (query.length() == 0) return;
+            mSearchIndex = new MenuSearchIndex(getSearchableTexts(mVisibleMenuItems));
+        }
+        int count = mSearchIndex.filter(query);
+        mAdapter.setFilter(query.length() == 0 ? null : mSearchIndex.getResult(), count);
+    }
+
+    private CharSequence[] getSearchableTexts(List<MenuItem> menuItems) {
+        SparseArray<PagedMenuSection> sections = mHandler.getPagedSections();
+        CharSequence[] texts = new CharSequence[menuItems.size()];
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < texts.length; i++) {
+            MenuItem item = menuItems.get(i);
+            builder.setLength(0);
+            // The rows of paged sections aren't loaded up front, so they can't be searched.
+            if (sections.get(item.getItemId()) != null) {
+                texts[i] = "";
+                continue;
+            }
+            if (item.getTitle() != null) builder.append(item.getTitle());
+            if (item.hasSubMenu()) {
+                SubMenu subMenu = item.getSubMenu();
+                for (int j = 0; j < subMenu.size(); j++) {
+                    CharSequence title = subMenu.getItem(j).getTitle();
+                    // Separate the titles so a query can't match across two of them.
+                    if (title != null) builder.append('\n').append(title);
+                }
             }
+            texts[i] = builder.toString();
+        }
+        return texts;
+    }
+
+    /**
+     * Applies a new profile to the menu that is showing. Running row animations are finished
+     * right away if the new profile disables them, other effects change the next time the menu is
+     * shown.
+     */
+    void updateFeatureProfile(AppMenuFeatureProfile profile) {
+        if (!isShowing()) return;
+        mFeatureProfile = profile;
+        if (!profile.isItemEnterAnimationEnabled() && mMenuItemEnterAnimator != null
+                && mEnterAnimationMode == AppMenuEnterAnimationMode.STAGGER) {
+            mMenuItemEnterAnimator.end();
+        }
+    }
+
+    /**
+     * @return The effects and cache sizes used while the menu is showing.
+     */
+    AppMenuFeatureProfile getFeatureProfile() {
+        return mFeatureProfile;
+    }
 
-            if (!ApiCompatibilityUtils.isLayoutRtl(anchorView.getRootView())) {
-                offsets[0] = anchorView.getWidth() - popupWidth;
+    /**
+     * @return How the content animates in while the menu is showing. Rows only need to build their
+     * enter animators for {@link AppMenuEnterAnimationMode#STAGGER}.
+     */
+    @AppMenuEnterAnimationMode
+    int getEnterAnimationMode() {
+        return mEnterAnimationMode;
+    }
+
+    /**
+     * @return Whether the item is still waiting for its asynchronous update and should be shown as
+     * a placeholder.
+     */
+    boolean isMenuItemPending(int itemId) {
+        return mHandler.isMenuItemPending(itemId);
+    }
+
+    private static List<MenuItem> getVisibleMenuItems(Menu menu) {
+        int numItems = menu.size();
+        List<MenuItem> menuItems = new ArrayList<>();
+        for (int i = 0; i < numItems; ++i) {
+            MenuItem item = menu.getItem(i);
+            if (item.isVisible()) {
+                menuItems.add(item);
             }
         }
+        return menuItems;
+    }
 
-        int xPos = anchorViewX + offsets[0];
-        int yPos = anchorViewY + offsets[1];
-        return new int[]{xPos, yPos};
+    private int[] getPopupPosition(int screenRotation, Rect appRect, Rect padding, View anchorView,
+                                   int popupWidth, int popupHeight, boolean isAnchorAtBottom) {
+        mGeometry.computePopupPosition(screenRotation, appRect.width(), appRect.bottom,
+                padding.bottom, mAnchorWindowLocation[0], mAnchorWindowLocation[1],
+                mAnchorScreenLocation[1], anchorView.getWidth(), popupWidth, popupHeight,
+                isAnchorAtBottom, mIsByPermanentButton,
+                ApiCompatibilityUtils.isLayoutRtl(anchorView.getRootView()), mPopupPosition);
+        return mPopupPosition;
     }
 
     /**
@@ -228,17 +482,33 @@ public class AppMenu implements OnItemClickListener, OnKeyListener {
      * @param menuItem The menu item in the popup that was clicked.
      */
     void onItemClick(MenuItem menuItem) {
-        if (menuItem.isEnabled()) {
+        if (menuItem.isEnabled() && isCascadingSubMenu(menuItem)) {
+            openSubMenu(menuItem);
+        } else if (menuItem.isEnabled()) {
+            mHandler.getMetricsRecorder().onItemSelected(SystemClock.uptimeMillis());
             dismiss();
             mHandler.onOptionsItemSelected(menuItem);
         }
     }
 
+    /**
+     * Handles clicks on the loaded rows of a paged section.
+     *
+     * @param section  The section of the row.
+     * @param position The position of the row in the section.
+     * @param entry    The clicked row.
+     */
+    void onPagedSectionEntryClick(
+            PagedMenuSection section, int position, PagedMenuSection.Entry entry) {
+        dismiss();
+        section.onEntryClicked(position, entry);
+    }
+
     /**
      * Creates and shows the app menu anchored to the specified view.
      *  @param context             The context of the AppMenu (ensure the proper theme is set on
      *                            this context).
-     * @param anchorView          The anchor {@link View} of the {@link PopupWindow}.
+     * @param anchorView          The anchor {@link View} of the {@link AppMenuWindow}.
      * @param screenRotation      Current device screen rotation.
      * @param visibleDisplayFrame The display area rect in which AppMenu is supposed to fit in.
      * @param screenHeight        Current device screen height.
@@ -254,19 +524,36 @@ public class AppMenu implements OnItemClickListener, OnKeyListener {
      *                            {@code 0} is dedicated to custom menu items and can be declared
      *                            by external apps.
      * @param showFromBottom      Whether the appearance animation should run from the bottom up.
+     * @param showSearchRow       Whether a search field that filters the items should be added
+     *                            below the header.
      */
     void show(Context context, final View anchorView,
               int screenRotation, Rect visibleDisplayFrame, int screenHeight,
               @IdRes int footerResourceId, @IdRes int headerResourceId, Integer highlightedItemId,
-              boolean showFromBottom) {
-        mPopup = new PopupWindow(context);
-        mPopup.setFocusable(true);
-        mPopup.setInputMethodMode(PopupWindow.INPUT_METHOD_NOT_NEEDED);
-
-        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) {
-            // The window layout type affects the z-index of the popup window on M+.
-            mPopup.setWindowLayoutType(WindowManager.LayoutParams.TYPE_APPLICATION_SUB_PANEL);
+              boolean showFromBottom, boolean showSearchRow) {
+        mFeatureProfile = mHandler.getFeatureProfile();
+        mShowFromBottom = showFromBottom;
+        mEnterAnimationMode = mHandler.getEnterAnimationMode();
+        if (mEnterAnimationMode == AppMenuEnterAnimationMode.STAGGER
+                && !mFeatureProfile.isItemEnterAnimationEnabled()) {
+            mEnterAnimationMode = AppMenuEnterAnimationMode.NONE;
         }
+        mPopup = mHandler.createMenuWindow(context);
+        mPopup.setInputMethodNeeded(showSearchRow);
+        // The search field can't be typed in without focus.
+        mPopup.setFocusable(mHandler.isMenuFocusable() || showSearchRow);
+        mReceivesHostTouches = !mPopup.isTouchModal();
+        mPopup.setTouchInterceptor(new View.OnTouchListener() {
+            @Override
+            public boolean onTouch(View v, MotionEvent event) {
+                // The window dismisses itself after this, possibly before the activity window
+                // gets the same touch.
+                if (event.getActionMasked() == MotionEvent.ACTION_OUTSIDE) {
+                    mOutsideTouchTime = event.getEventTime();
+                }
+                return false;
+            }
+        });
 
         mPopup.setOnDismissListener(new PopupWindow.OnDismissListener() {
             @Override
@@ -276,14 +563,25 @@ public class AppMenu implements OnItemClickListener, OnKeyListener {
                 }
 
                 if (mMenuItemEnterAnimator != null) mMenuItemEnterAnimator.cancel();
+                mAdapter.destroy();
+                mAnchorTracker.stop();
 
+                AppMenuAnimationTracker animationTracker = mHandler.getAnimationTracker();
+                animationTracker.onDismissing();
                 mHandler.appMenuDismissed();
                 mHandler.onMenuVisibilityChanged(false);
+                animationTracker.onDismissed();
 
                 mPopup = null;
                 mAdapter = null;
                 mListView = null;
                 mMenuItemEnterAnimator = null;
+                mVisibleMenuItems = null;
+                mSearchField = null;
+                mSearchIndex = null;
+                mOpenSubMenus.clear();
+                mSubMenuLevels.clear();
+                mHoveredItems.clear();
             }
         });
 
@@ -294,13 +592,32 @@ public class AppMenu implements OnItemClickListener, OnKeyListener {
 
         // Need to explicitly set the background here.  Relying on it being set in the style caused
         // an incorrectly drawn background.
-        mPopup.setBackgroundDrawable(
-                ApiCompatibilityUtils.getDrawable(context.getResources(), R.drawable.popup_bg));
+        if (mHandler.isReducedOverdrawEnabled()) {
+            // A single shape with a shadow from elevation instead of a nine-patch drawing both.
+            mPopup.setBackgroundDrawable(ApiCompatibilityUtils.getDrawable(
+                    context.getResources(), R.drawable.menu_background));
+            mPopup.setElevation(
+                    context.getResources().getDimensionPixelSize(R.dimen.menu_elevation));
+        } else {
+            mPopup.setBackgroundDrawable(ApiCompatibilityUtils.getDrawable(
+                    context.getResources(), R.drawable.popup_bg));
+        }
         mPopup.setAnimationStyle(
                 showFromBottom ? R.style.OverflowMenuAnimBottom : R.style.OverflowMenuAnim);
-
-        // Turn off window animations for low end devices.
-        if (SysUtils.isLowEndDevice()) mPopup.setAnimationStyle(0);
+        // The window animations of the styles above, used to tell when they end.
+        int windowEnterAnimation =
+                showFromBottom ? R.anim.menu_enter_from_bottom : R.anim.menu_enter;
+        int windowExitAnimation =
+                showFromBottom ? R.anim.menu_exit_from_bottom : R.anim.menu_exit;
+
+        // Turn off window animations if the device can't afford them or only the reveal, or no
+        // animation at all, is wanted.
+        if (!mFeatureProfile.isWindowAnimationEnabled()
+                || mHandler.getEnterAnimationMode() != AppMenuEnterAnimationMode.STAGGER) {
+            mPopup.setAnimationStyle(0);
+            windowEnterAnimation = 0;
+            windowExitAnimation = 0;
+        }
 
         Rect bgPadding = new Rect();
         mPopup.getBackground().getPadding(bgPadding);
@@ -313,69 +630,91 @@ public class AppMenu implements OnItemClickListener, OnKeyListener {
         mIsByPermanentButton = false;
 
         // Extract visible items from the Menu.
-        int numItems = mMenu.size();
-        List<MenuItem> menuItems = new ArrayList<>();
-        for (int i = 0; i < numItems; ++i) {
-            MenuItem item = mMenu.getItem(i);
-            if (item.isVisible()) {
-                menuItems.add(item);
-            }
-        }
+        List<MenuItem> menuItems = getVisibleMenuItems(mMenu);
+        mVisibleMenuItems = menuItems;
 
         Rect sizingPadding = new Rect(bgPadding);
 
         // A List adapter for visible items in the Menu. The first row is added as a header to the
         // list view.
-        mAdapter = new AppMenuAdapter(
-                this, menuItems, LayoutInflater.from(context), highlightedItemId);
+        AppMenuTrace.begin(AppMenuTrace.CREATE_ADAPTER);
+        mAdapter = new AppMenuAdapter(this, menuItems, LayoutInflater.from(context),
+                highlightedItemId, mHandler.getPagedSections());
 
         @SuppressLint("InflateParams") ViewGroup contentView =
                 (ViewGroup) LayoutInflater.from(context).inflate(R.layout.app_menu_layout, null);
         mListView = contentView.findViewById(R.id.app_menu_list);
+        AppMenuTrace.end();
 
+        AppMenuTrace.begin(AppMenuTrace.INFLATE_FOOTER);
         int footerHeight =
                 inflateFooter(footerResourceId, contentView, menuWidth, highlightedItemId);
+        AppMenuTrace.end();
+        AppMenuTrace.begin(AppMenuTrace.INFLATE_HEADER);
         int headerHeight = inflateHeader(headerResourceId, contentView, menuWidth);
+        if (showSearchRow) headerHeight += inflateSearchRow(contentView, menuWidth);
+        AppMenuTrace.end();
 
         // Set the adapter after the header is added to avoid crashes on JellyBean.
         // See crbug.com/761726.
         mListView.setAdapter(mAdapter);
 
-        int popupHeight = setMenuHeight(menuItems.size(), visibleDisplayFrame, screenHeight,
+        anchorView.getLocationInWindow(mAnchorWindowLocation);
+        anchorView.getLocationOnScreen(mAnchorScreenLocation);
+        AppMenuTrace.begin(AppMenuTrace.SET_MENU_HEIGHT);
+        int popupHeight = getMenuHeight(mAdapter.getCount(), visibleDisplayFrame, screenHeight,
                 sizingPadding, footerHeight, headerHeight, anchorView);
+        mPopup.setHeight(popupHeight);
+        AppMenuTrace.end();
         int[] popupPosition = getPopupPosition(screenRotation, visibleDisplayFrame,
                 sizingPadding, anchorView, popupWidth, popupHeight, showFromBottom);
 
+        AppMenuTrace.begin(AppMenuTrace.SHOW_AT_LOCATION);
         mPopup.setContentView(contentView);
-        mPopup.showAtLocation(
-                anchorView.getRootView(), Gravity.NO_GRAVITY, popupPosition[0], popupPosition[1]);
+        mPopup.showAtLocation(anchorView, popupPosition[0], popupPosition[1]);
+        AppMenuTrace.end();
+        AppMenuTrace.beginAsync(AppMenuTrace.FIRST_LAYOUT);
+        mAnchorTracker.start(anchorView, screenRotation, visibleDisplayFrame, screenHeight,
+                sizingPadding, popupWidth, footerHeight, headerHeight, showFromBottom,
+                popupPosition, popupHeight);
 
         mListView.setOnItemClickListener(this);
         mListView.setItemsCanFocus(true);
         mListView.setOnKeyListener(this);
 
         mHandler.onMenuVisibilityChanged(true);
+        mHandler.getAnimationTracker().onShown(
+                context, windowEnterAnimation, windowExitAnimation, mEnterAnimationMode);
 
-        if (mVerticalFadeDistance > 0) {
-            mListView.setVerticalFadingEdgeEnabled(true);
-            mListView.setFadingEdgeLength(mVerticalFadeDistance);
+        if (mFeatureProfile.isFadingEdgeEnabled()) {
+            mListView.setEdgeGradientLength(mVerticalFadeDistance);
         }
 
-        // Don't animate the menu items for low end devices.
-        if (!SysUtils.isLowEndDevice()) {
-            mListView.addOnLayoutChangeListener(new View.OnLayoutChangeListener() {
-                @Override
-                public void onLayoutChange(View v, int left, int top, int right, int bottom,
-                                           int oldLeft, int oldTop, int oldRight, int oldBottom) {
-                    mListView.removeOnLayoutChangeListener(this);
-                    runMenuItemEnterAnimations();
-                }
-            });
-        }
+        mListView.addOnLayoutChangeListener(new View.OnLayoutChangeListener() {
+            @Override
+            public void onLayoutChange(View v, int left, int top, int right, int bottom,
+                                       int oldLeft, int oldTop, int oldRight, int oldBottom) {
+                mListView.removeOnLayoutChangeListener(this);
+                AppMenuTrace.endAsync(AppMenuTrace.FIRST_LAYOUT);
+                runMenuItemEnterAnimations();
+            }
+        });
     }
 
     @Override
     public void onItemClick(AdapterView<?> parent, View view, int position, long id) {
+        // List positions include the header views.
+        position -= mListView.getHeaderViewsCount();
+        if (position < 0 || position >= mAdapter.getCount()) return;
+        if (mAdapter.isBackRow(position)) {
+            closeSubMenu();
+            return;
+        }
+        // Rows of paged sections handle their own clicks.
+        if (mAdapter.isPagedSectionRow(position)) {
+            view.performClick();
+            return;
+        }
         onItemClick(mAdapter.getItem(position));
     }
 
@@ -383,17 +722,65 @@ public class AppMenu implements OnItemClickListener, OnKeyListener {
     public boolean onKey(View v, int keyCode, KeyEvent event) {
         if (mListView == null) return false;
 
-        if (event.getKeyCode() == KeyEvent.KEYCODE_MENU) {
-            if (event.getAction() == KeyEvent.ACTION_DOWN && event.getRepeatCount() == 0) {
-                event.startTracking();
-                v.getKeyDispatcherState().startTracking(event, this);
+        if (event.getKeyCode() == KeyEvent.KEYCODE_MENU) return handleDismissKey(v, event);
+        return false;
+    }
+
+    /**
+     * Handles a key event received by the window hosting the menu while the menu doesn't have
+     * focus, the way the menu handles it when it has.
+     *
+     * @param event The key event.
+     * @return Whether the event was consumed.
+     */
+    boolean onHostKeyEvent(KeyEvent event) {
+        if (mListView == null || !isShowing()) return false;
+
+        // A focused menu gets the back key from its window.
+        int keyCode = event.getKeyCode();
+        if (keyCode == KeyEvent.KEYCODE_MENU || keyCode == KeyEvent.KEYCODE_BACK) {
+            return handleDismissKey(mListView, event);
+        }
+        return false;
+    }
+
+    /**
+     * Handles a touch event received by the activity window. A window that isn't touch modal, such
+     * as the popup of a menu without focus, lets a touch outside the menu reach the activity as
+     * well. The whole gesture is consumed so it neither clicks the view below nor reopens the menu
+     * from its button, whether it arrives before or after the window dismissed the menu.
+     *
+     * @param event The touch event.
+     * @return Whether the event was consumed.
+     */
+    boolean onHostTouchEvent(MotionEvent event) {
+        if (!mReceivesHostTouches) return false;
+        int action = event.getActionMasked();
+        if (action == MotionEvent.ACTION_DOWN) {
+            // A touch that reaches the activity window while the menu is showing is outside it.
+            mIsConsumingHostGesture = isShowing() || event.getEventTime() == mOutsideTouchTime;
+            if (mIsConsumingHostGesture) dismiss();
+        }
+        boolean consumed = mIsConsumingHostGesture;
+        if (action == MotionEvent.ACTION_UP || action == MotionEvent.ACTION_CANCEL) {
+            mIsConsumingHostGesture = false;
+        }
+        return consumed;
+    }
+
+    /**
+     * Dismisses the menu when a key is pressed and released without being canceled.
+     */
+    private boolean handleDismissKey(View v, KeyEvent event) {
+        if (event.getAction() == KeyEvent.ACTION_DOWN && event.getRepeatCount() == 0) {
+            event.startTracking();
+            v.getKeyDispatcherState().startTracking(event, this);
+            return true;
+        } else if (event.getAction() == KeyEvent.ACTION_UP) {
+            v.getKeyDispatcherState().handleUpEvent(event);
+            if (event.isTracking() && !event.isCanceled()) {
+                dismiss();
                 return true;
-            } else if (event.getAction() == KeyEvent.ACTION_UP) {
-                v.getKeyDispatcherState().handleUpEvent(event);
-                if (event.isTracking() && !event.isCanceled()) {
-                    dismiss();
-                    return true;
-                }
             }
         }
         return false;
@@ -419,9 +806,9 @@ public class AppMenu implements OnItemClickListener, OnKeyListener {
     }
 
     /**
-     * @return {@link PopupWindow} that displays all the menu options and optional footer.
+     * @return {@link AppMenuWindow} that displays all the menu options and optional footer.
      */
-    PopupWindow getPopup() {
+    AppMenuWindow getPopup() {
         return mPopup;
     }
 
@@ -432,69 +819,89 @@ public class AppMenu implements OnItemClickListener, OnKeyListener {
         return mListView;
     }
 
-    private int setMenuHeight(int numMenuItems, Rect appDimensions, int screenHeight, Rect padding,
+    private int getMenuHeight(int numMenuItems, Rect appDimensions, int screenHeight, Rect padding,
                               int footerHeight, int headerHeight, View anchorView) {
-        int menuHeight;
-        anchorView.getLocationOnScreen(mTempLocation);
-        int anchorViewY = mTempLocation[1] - appDimensions.top;
-
-        int anchorViewImpactHeight = mIsByPermanentButton ? anchorView.getHeight() : 0;
-
-        // Set appDimensions.height() for abnormal anchorViewLocation.
-        if (anchorViewY > screenHeight) {
-            anchorViewY = appDimensions.height();
-        }
-        int availableScreenSpace = Math.max(
-                anchorViewY, appDimensions.height() - anchorViewY - anchorViewImpactHeight);
-
-        availableScreenSpace -= (padding.bottom + footerHeight + headerHeight);
-        if (mIsByPermanentButton) availableScreenSpace -= padding.top;
-
-        int numCanFit = availableScreenSpace / (mItemRowHeight + mItemDividerHeight);
-
-        // Fade out the last item if we cannot fit all items.
-        if (numCanFit < numMenuItems) {
-            int spaceForFullItems = numCanFit * (mItemRowHeight + mItemDividerHeight);
-            spaceForFullItems += footerHeight + headerHeight;
-
-            int spaceForPartialItem = (int) (LAST_ITEM_SHOW_FRACTION * mItemRowHeight);
-            // Determine which item needs hiding.
-            if (spaceForFullItems + spaceForPartialItem < availableScreenSpace) {
-                menuHeight = spaceForFullItems + spaceForPartialItem + padding.top + padding.bottom;
-            } else {
-                menuHeight = spaceForFullItems - mItemRowHeight + spaceForPartialItem + padding.top
-                        + padding.bottom;
-            }
-        } else {
-            int spaceForFullItems = numMenuItems * (mItemRowHeight + mItemDividerHeight);
-            spaceForFullItems += footerHeight + headerHeight;
-            menuHeight = spaceForFullItems + padding.top + padding.bottom;
-        }
-        mPopup.setHeight(menuHeight);
+        int menuHeight = mGeometry.computeMenuHeight(numMenuItems, appDimensions.top,
+                appDimensions.height(), screenHeight, mAnchorScreenLocation[1],
+                anchorView.getHeight(), padding.top, padding.bottom, footerHeight, headerHeight,
+                mIsByPermanentButton);
         return menuHeight;
     }
 
     private void runMenuItemEnterAnimations() {
+        final AppMenuAnimationTracker animationTracker = mHandler.getAnimationTracker();
+        // Stagger is turned into none in show() if the device can't afford it.
+        if (mEnterAnimationMode == AppMenuEnterAnimationMode.NONE) {
+            animationTracker.onItemEnterAnimationEnded();
+            return;
+        }
+
         mMenuItemEnterAnimator = new AnimatorSet();
-        AnimatorSet.Builder builder = null;
-
-        ViewGroup list = mListView;
-        for (int i = 0; i < list.getChildCount(); i++) {
-            View view = list.getChildAt(i);
-            Object animatorObject = view.getTag(R.id.menu_item_enter_anim_id);
-            if (animatorObject != null) {
-                if (builder == null) {
-                    builder = mMenuItemEnterAnimator.play((Animator) animatorObject);
-                } else {
-                    builder.with((Animator) animatorObject);
+        if (mEnterAnimationMode == AppMenuEnterAnimationMode.REVEAL) {
+            mMenuItemEnterAnimator.play(buildRevealAnimator(mPopup.getFrameView()));
+        } else {
+            AnimatorSet.Builder builder = null;
+
+            ViewGroup list = mListView;
+            for (int i = 0; i < list.getChildCount(); i++) {
+                View view = list.getChildAt(i);
+                Object animatorObject = view.getTag(R.id.menu_item_enter_anim_id);
+                if (animatorObject != null) {
+                    if (builder == null) {
+                        builder = mMenuItemEnterAnimator.play((Animator) animatorObject);
+                    } else {
+                        builder.with((Animator) animatorObject);
+                    }
                 }
             }
         }
 
-        /*mMenuItemEnterAnimator.addListener(mAnimationHistogramRecorder);*/
+        mMenuItemEnterAnimator.addListener(new AnimatorListenerAdapter() {
+            @Override
+            public void onAnimationEnd(Animator animation) {
+                AppMenuTrace.endAsync(AppMenuTrace.ENTER_ANIMATION);
+                mHandler.getMetricsRecorder().onEnterAnimationEnded();
+                animationTracker.onItemEnterAnimationEnded();
+            }
+        });
+        AppMenuTrace.beginAsync(AppMenuTrace.ENTER_ANIMATION);
+        mHandler.getMetricsRecorder().onEnterAnimationStarted();
+        animationTracker.onItemEnterAnimationStarted();
         mMenuItemEnterAnimator.start();
     }
 
+    /**
+     * Builds a single animator that reveals the whole menu, background included, from the corner
+     * next to the anchor. On L and later it's a circular reveal that runs on the render thread,
+     * before that it scales and fades the menu in.
+     *
+     * @param frame The view drawing the background of the menu, see
+     *              {@link AppMenuWindow#getFrameView()}.
+     */
+    private Animator buildRevealAnimator(View frame) {
+        int width = frame.getWidth();
+        int height = frame.getHeight();
+        // The frame of a popup window doesn't inherit the layout direction of the activity.
+        boolean rtl = ApiCompatibilityUtils.isLayoutRtl(mListView);
+        Animator animator;
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
+            int centerX = rtl ? 0 : width;
+            int centerY = mShowFromBottom ? height : 0;
+            animator = ViewAnimationUtils.createCircularReveal(
+                    frame, centerX, centerY, 0f, (float) Math.hypot(width, height));
+        } else {
+            frame.setPivotX(rtl ? 0 : width);
+            frame.setPivotY(mShowFromBottom ? height : 0);
+            AnimatorSet set = new AnimatorSet();
+            set.playTogether(ObjectAnimator.ofFloat(frame, View.SCALE_Y, 0.8f, 1f),
+                    ObjectAnimator.ofFloat(frame, View.ALPHA, 0f, 1f));
+            animator = set;
+        }
+        animator.setDuration(REVEAL_DURATION_MS);
+        animator.setInterpolator(BakedBezierInterpolator.FADE_IN_CURVE);
+        return animator;
+    }
+
     private int inflateFooter(
             int footerResourceId, View contentView, int menuWidth, Integer highlightedItemId) {
         if (footerResourceId == 0) {
@@ -511,7 +918,8 @@ public class AppMenu implements OnItemClickListener, OnKeyListener {
 
         if (highlightedItemId != null) {
             View viewToHighlight = mFooterView.findViewById(highlightedItemId);
-            ViewHighlighter.turnOnHighlight(viewToHighlight, viewToHighlight != mFooterView);
+            ViewHighlighter.turnOnHighlight(viewToHighlight, viewToHighlight != mFooterView,
+                    mFeatureProfile.getPulseFrameRate());
         }
 
         if (mHandler != null) mHandler.onFooterViewInflated(mFooterView);
@@ -535,6 +943,34 @@ public class AppMenu implements OnItemClickListener, OnKeyListener {
         return headerView.getMeasuredHeight();
     }
 
+    private int inflateSearchRow(View contentView, int menuWidth) {
+        View searchRow = LayoutInflater.from(contentView.getContext())
+                .inflate(R.layout.app_menu_search_row, mListView, false);
+        mListView.addHeaderView(searchRow);
+
+        mSearchField = searchRow.findViewById(R.id.app_menu_search_field);
+        mSearchField.addTextChangedListener(new TextWatcher() {
+            @Override
+            public void beforeTextChanged(CharSequence s, int start, int count, int after) {
+            }
+
+            @Override
+            public void onTextChanged(CharSequence s, int start, int before, int count) {
+            }
+
+            @Override
+            public void afterTextChanged(Editable s) {
+                filterMenuItems(s);
+            }
+        });
+
+        int widthMeasureSpec = MeasureSpec.makeMeasureSpec(menuWidth, MeasureSpec.EXACTLY);
+        int heightMeasureSpec = MeasureSpec.makeMeasureSpec(0, MeasureSpec.UNSPECIFIED);
+        searchRow.measure(widthMeasureSpec, heightMeasureSpec);
+
+        return searchRow.getMeasuredHeight();
+    }
+
     /**
      * Handles long clicks on image buttons on the AppMenu popup.
      *
@@ -566,4 +1002,100 @@ public class AppMenu implements OnItemClickListener, OnKeyListener {
 //        }
         return showAccessibilityToast(context, view, description);
     }
+
+    /**
+     * Moves the popup with its anchor view while the menu is showing, for example when the anchor
+     * is in a collapsing toolbar. The popup is only updated when its position or height changes,
+     * and its size is left alone unless the height changes so the list isn't laid out again.
+     */
+    private class AnchorTracker implements ViewTreeObserver.OnPreDrawListener,
+            ViewTreeObserver.OnScrollChangedListener {
+        private final int[] mWindowLocation = new int[2];
+        private final int[] mScreenLocation = new int[2];
+        private final Rect mSizingPadding = new Rect();
+        private View mAnchorView;
+        private ViewTreeObserver mViewTreeObserver;
+        private int mScreenRotation;
+        private Rect mVisibleDisplayFrame;
+        private int mScreenHeight;
+        private int mPopupWidth;
+        private int mFooterHeight;
+        private int mHeaderHeight;
+        private boolean mIsAnchorAtBottom;
+        private int mPopupX;
+        private int mPopupY;
+        private int mPopupHeight;
+
+        void start(View anchorView, int screenRotation, Rect visibleDisplayFrame,
+                   int screenHeight, Rect sizingPadding, int popupWidth, int footerHeight,
+                   int headerHeight, boolean isAnchorAtBottom, int[] popupPosition,
+                   int popupHeight) {
+            stop();
+            mAnchorView = anchorView;
+            mScreenRotation = screenRotation;
+            mVisibleDisplayFrame = visibleDisplayFrame;
+            mScreenHeight = screenHeight;
+            mSizingPadding.set(sizingPadding);
+            mPopupWidth = popupWidth;
+            mFooterHeight = footerHeight;
+            mHeaderHeight = headerHeight;
+            mIsAnchorAtBottom = isAnchorAtBottom;
+            mPopupX = popupPosition[0];
+            mPopupY = popupPosition[1];
+            mPopupHeight = popupHeight;
+
+            mViewTreeObserver = anchorView.getViewTreeObserver();
+            mViewTreeObserver.addOnPreDrawListener(this);
+            mViewTreeObserver.addOnScrollChangedListener(this);
+        }
+
+        void stop() {
+            if (mViewTreeObserver != null && mViewTreeObserver.isAlive()) {
+                mViewTreeObserver.removeOnPreDrawListener(this);
+                mViewTreeObserver.removeOnScrollChangedListener(this);
+            }
+            mViewTreeObserver = null;
+            mAnchorView = null;
+            mVisibleDisplayFrame = null;
+        }
+
+        @Override
+        public boolean onPreDraw() {
+            updatePopup();
+            return true;
+        }
+
+        @Override
+        public void onScrollChanged() {
+            updatePopup();
+        }
+
+        private void updatePopup() {
+            if (mAnchorView == null || !isShowing()) return;
+
+            mAnchorView.getLocationInWindow(mWindowLocation);
+            mAnchorView.getLocationOnScreen(mScreenLocation);
+            if (mWindowLocation[0] == mAnchorWindowLocation[0]
+                    && mWindowLocation[1] == mAnchorWindowLocation[1]
+                    && mScreenLocation[1] == mAnchorScreenLocation[1]) {
+                return;
+            }
+            System.arraycopy(mWindowLocation, 0, mAnchorWindowLocation, 0, 2);
+            System.arraycopy(mScreenLocation, 0, mAnchorScreenLocation, 0, 2);
+
+            int popupHeight = getMenuHeight(mAdapter.getCount(), mVisibleDisplayFrame,
+                    mScreenHeight, mSizingPadding, mFooterHeight, mHeaderHeight, mAnchorView);
+            int[] popupPosition = getPopupPosition(mScreenRotation, mVisibleDisplayFrame,
+                    mSizingPadding, mAnchorView, mPopupWidth, popupHeight, mIsAnchorAtBottom);
+            boolean heightChanged = popupHeight != mPopupHeight;
+            if (!heightChanged && popupPosition[0] == mPopupX && popupPosition[1] == mPopupY) {
+                return;
+            }
+            mPopupX = popupPosition[0];
+            mPopupY = popupPosition[1];
+            mPopupHeight = popupHeight;
+            // A size of -1 keeps the current one.
+            mPopup.update(mPopupX, mPopupY, -1, heightChanged ? popupHeight : -1);
+        }
+    }
 }
@@ -10,8 +10,11 @@ import android.animation.AnimatorSet;
 import android.animation.ObjectAnimator;
 import android.content.Context;
 import android.content.res.Configuration;
+import android.content.res.Resources;
 import android.graphics.drawable.Drawable;
 import android.text.TextUtils;
+import android.util.SparseArray;
+import android.util.TypedValue;
 import android.view.LayoutInflater;
 import android.view.MenuItem;
 import android.view.View;
@@ -27,6 +30,7 @@ import java.lang.annotation.RetentionPolicy;
 import java.util.List;
 
 import androidx.annotation.IntDef;
+import androidx.annotation.Nullable;
 import androidx.appcompat.content.res.AppCompatResources;
 import androidx.core.view.MenuItemCompat;
 import androidx.core.widget.ImageViewCompat;
@@ -63,24 +67,235 @@ class AppMenuAdapter extends BaseAdapter {
     private static final float ENTER_STANDARD_ITEM_OFFSET_X_DP = 10.f;
     private final AppMenu mAppMenu;
     private final LayoutInflater mInflater;
-    private final List<MenuItem> mMenuItems;
-    private final int mNumMenuItems;
+    private List<MenuItem> mMenuItems;
+    private int mNumMenuItems;
+    /**
+     * The positions in {@link #mMenuItems} of the rows matching the search query, or {@code null}
+     * if the rows aren't filtered.
+     */
+    private int[] mFilteredPositions;
+    private int mFilteredCount;
+    /**
+     * The paged sections, by the id of the item they replace.
+     */
+    private final SparseArray<PagedMenuSection> mSections;
+    private final SparseArray<PagedMenuSectionLoader> mSectionLoaders = new SparseArray<>();
+    /**
+     * The first row of every item of {@link #mMenuItems} followed by the total number of rows, or
+     * {@code null} if no paged section is shown.
+     */
+    private int[] mRowStarts;
+    /**
+     * The item whose sub menu is shown, or {@code null} if the top level of the menu is shown.
+     * When set, a row leading back to the parent level is shown above the items.
+     */
+    private MenuItem mLevelParent;
+    private final Runnable mOnSectionPageLoaded = new Runnable() {
+        @Override
+        public void run() {
+            notifyDataSetChanged();
+        }
+    };
+    /**
+     * Click listeners shared by all rows and buttons, so that binding a row doesn't allocate.
+     * The item of a view is kept in its {@code R.id.menu_item_bound_item} tag.
+     */
+    private final View.OnClickListener mItemClickListener = new View.OnClickListener() {
+        @Override
+        public void onClick(View v) {
+            mAppMenu.onItemClick((MenuItem) v.getTag(R.id.menu_item_bound_item));
+        }
+    };
+    private final View.OnLongClickListener mItemLongClickListener =
+            new View.OnLongClickListener() {
+                @Override
+                public boolean onLongClick(View v) {
+                    return mAppMenu.onItemLongClick(
+                            (MenuItem) v.getTag(R.id.menu_item_bound_item), v);
+                }
+            };
+    private final View.OnClickListener mPagedRowClickListener = new View.OnClickListener() {
+        @Override
+        public void onClick(View v) {
+            StandardMenuItemViewHolder holder = (StandardMenuItemViewHolder) v.getTag();
+            if (holder.pagedEntry == null) return;
+            mAppMenu.onPagedSectionEntryClick(
+                    holder.pagedSection, holder.positionInSection, holder.pagedEntry);
+        }
+    };
     private final Integer mHighlightedItemId;
     private final float mDpToPx;
+    private final float mDisabledAlpha;
 
     AppMenuAdapter(AppMenu appMenu, List<MenuItem> menuItems, LayoutInflater inflater,
-                   Integer highlightedItemId) {
+                   Integer highlightedItemId, SparseArray<PagedMenuSection> sections) {
         mAppMenu = appMenu;
         mMenuItems = menuItems;
         mInflater = inflater;
         mHighlightedItemId = highlightedItemId;
         mNumMenuItems = menuItems.size();
-        mDpToPx = inflater.getContext().getResources().getDisplayMetrics().density;
+        mSections = sections;
+        updateRowStarts();
+        Resources res = inflater.getContext().getResources();
+        mDpToPx = res.getDisplayMetrics().density;
+        TypedValue disabledAlpha = new TypedValue();
+        res.getValue(R.dimen.default_disabled_alpha, disabledAlpha, true);
+        mDisabledAlpha = disabledAlpha.getFloat();
+    }
+
+    /**
+     * Replaces the rows shown by this adapter without creating a new adapter.
+     *
+     * @param menuItems   The visible items of the menu level.
+     * @param levelParent The item whose sub menu {@code menuItems} belong to, or {@code null} for
+     *                    the top level of the menu.
+     */
+    void setMenuItems(List<MenuItem> menuItems, @Nullable MenuItem levelParent) {
+        mMenuItems = menuItems;
+        mLevelParent = levelParent;
+        mNumMenuItems = menuItems.size();
+        mFilteredPositions = null;
+        updateRowStarts();
+        notifyDataSetChanged();
+    }
+
+    /**
+     * Stops loading the pages of the paged sections. Called when the menu is dismissed.
+     */
+    void destroy() {
+        for (int i = 0; i < mSectionLoaders.size(); i++) {
+            mSectionLoaders.valueAt(i).destroy();
+        }
+        mSectionLoaders.clear();
+    }
+
+    private void updateRowStarts() {
+        destroy();
+        mRowStarts = null;
+        if (mSections.size() == 0) return;
+
+        boolean hasSection = false;
+        int[] rowStarts = new int[mNumMenuItems + 1];
+        int row = 0;
+        for (int i = 0; i < mNumMenuItems; i++) {
+            rowStarts[i] = row;
+            int itemId = mMenuItems.get(i).getItemId();
+            PagedMenuSection section = mSections.get(itemId);
+            if (section == null) {
+                row++;
+                continue;
+            }
+            PagedMenuSectionLoader loader = new PagedMenuSectionLoader(section,
+                    mAppMenu.getFeatureProfile().getMaxCachedPages(), mOnSectionPageLoaded);
+            mSectionLoaders.put(itemId, loader);
+            row += loader.getCount();
+            hasSection = true;
+        }
+        rowStarts[mNumMenuItems] = row;
+        if (hasSection) mRowStarts = rowStarts;
+    }
+
+    /**
+     * @return The number of rows shown above the items of the level, 1 if a sub menu is shown.
+     */
+    private int getBackRowCount() {
+        return mLevelParent == null ? 0 : 1;
+    }
+
+    /**
+     * @return Whether the row at {@code position} leads back to the parent level.
+     */
+    boolean isBackRow(int position) {
+        return position < getBackRowCount();
+    }
+
+    /**
+     * @param position The position of a row below the back row, if any, relative to the first
+     *                 item of the level.
+     * @return The index in {@link #mMenuItems} of the item shown at {@code position}. For the rows
+     * of a paged section, this is the item the section replaces.
+     */
+    private int getMenuItemIndex(int position) {
+        if (mFilteredPositions != null) return mFilteredPositions[position];
+        if (mRowStarts == null) return position;
+
+        // Find the last item starting at or before the position.
+        int low = 0;
+        int high = mNumMenuItems - 1;
+        while (low < high) {
+            int mid = (low + high + 1) >>> 1;
+            if (mRowStarts[mid] <= position) {
+                low = mid;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * @param position The position of a row relative to the first item of the level.
+     * @return The loader of the paged section shown at {@code position}, or {@code null} if the
+     * row shows a regular item. Paged sections are hidden while the rows are filtered.
+     */
+    @Nullable
+    private PagedMenuSectionLoader getSectionLoader(int position) {
+        if (mRowStarts == null || mFilteredPositions != null) return null;
+        return mSectionLoaders.get(mMenuItems.get(getMenuItemIndex(position)).getItemId());
+    }
+
+    /**
+     * @return Whether the row at {@code position} belongs to a paged section.
+     */
+    boolean isPagedSectionRow(int position) {
+        return !isBackRow(position) && getSectionLoader(position - getBackRowCount()) != null;
+    }
+
+    /**
+     * Only shows some of the rows, in place.
+     *
+     * @param positions The positions of the rows to show in the list passed to the constructor or
+     *                  {@link #setMenuItems(List, MenuItem)}, in increasing order. {@code null}
+     *                  shows every row again. The back row of a sub menu is always shown.
+     * @param count     The number of valid entries in {@code positions}.
+     */
+    void setFilter(@Nullable int[] positions, int count) {
+        mFilteredPositions = positions;
+        mFilteredCount = count;
+        notifyDataSetChanged();
+    }
+
+    /**
+     * @param itemId The id of a row or of a child of a button row.
+     * @return The position of the row that shows the item, or -1 if it isn't shown.
+     */
+    int getPositionForItemId(int itemId) {
+        if (mFilteredPositions != null) {
+            for (int i = 0; i < mFilteredCount; i++) {
+                if (showsItemId(mMenuItems.get(mFilteredPositions[i]), itemId)) {
+                    return getBackRowCount() + i;
+                }
+            }
+            return -1;
+        }
+        for (int i = 0; i < mNumMenuItems; i++) {
+            if (showsItemId(mMenuItems.get(i), itemId)) {
+                return getBackRowCount() + (mRowStarts == null ? i : mRowStarts[i]);
+            }
+        }
+        return -1;
+    }
+
+    private static boolean showsItemId(MenuItem item, int itemId) {
+        if (item.getItemId() == itemId) return true;
+        return item.hasSubMenu() && item.getSubMenu().findItem(itemId) != null;
     }
 
     @Override
     public int getCount() {
-        return mNumMenuItems;
+        if (mFilteredPositions != null) return getBackRowCount() + mFilteredCount;
+        int count = mRowStarts != null ? mRowStarts[mNumMenuItems] : mNumMenuItems;
+        return getBackRowCount() + count;
     }
 
     @Override
@@ -91,7 +306,11 @@ class AppMenuAdapter extends BaseAdapter {
     @Override
     public @MenuItemType
     int getItemViewType(int position) {
+        if (isBackRow(position)) return MenuItemType.SUB_MENU_BACK;
+        if (isPagedSectionRow(position)) return MenuItemType.STANDARD;
+
         MenuItem item = getItem(position);
+        if (mAppMenu.isCascadingSubMenu(item)) return MenuItemType.STANDARD;
         int viewCount = item.hasSubMenu() ? item.getSubMenu().size() : 1;
 
         if (viewCount == 2) {
@@ -116,10 +335,20 @@ class AppMenuAdapter extends BaseAdapter {
         if (position == ListView.INVALID_POSITION) return null;
         if (position < 0) {
             throw new IllegalArgumentException("Invalid menu item position " + position);
-        } else if (position >= mMenuItems.size()) {
-            throw new IllegalArgumentException("Too big menu item position " + position + "/" + mMenuItems.size());
+        } else if (position >= getCount()) {
+            throw new IllegalArgumentException(
+                    "Too big menu item position " + position + "/" + getCount());
         }
-        return mMenuItems.get(position);
+        if (isBackRow(position)) return mLevelParent;
+        return mMenuItems.get(getMenuItemIndex(position - getBackRowCount()));
+    }
+
+    /**
+     * Rows only animate in one by one in {@link AppMenuEnterAnimationMode#STAGGER}, so the other
+     * modes skip building their animators.
+     */
+    private boolean buildsEnterAnimators() {
+        return mAppMenu.getEnterAnimationMode() == AppMenuEnterAnimationMode.STAGGER;
     }
 
     private static boolean isLayoutRtl(final Context context) {
@@ -156,9 +385,10 @@ class AppMenuAdapter extends BaseAdapter {
         setupMenuButton(button, item);
     }
 
-    private void setupMenuButton(View button, final MenuItem item) {
-        button.setEnabled(item.isEnabled());
-        button.setFocusable(item.isEnabled());
+    private void setupMenuButton(View button, MenuItem item) {
+        boolean isEnabled = item.isEnabled() && !mAppMenu.isMenuItemPending(item.getItemId());
+        button.setEnabled(isEnabled);
+        button.setFocusable(isEnabled);
         if (TextUtils.isEmpty(item.getTitleCondensed())) {
             button.setImportantForAccessibility(View.IMPORTANT_FOR_ACCESSIBILITY_NO);
         } else {
@@ -166,22 +396,13 @@ class AppMenuAdapter extends BaseAdapter {
             button.setImportantForAccessibility(View.IMPORTANT_FOR_ACCESSIBILITY_AUTO);
         }
 
-        button.setOnClickListener(new View.OnClickListener() {
-            @Override
-            public void onClick(View v) {
-                mAppMenu.onItemClick(item);
-            }
-        });
-
-        button.setOnLongClickListener(new View.OnLongClickListener() {
-            @Override
-            public boolean onLongClick(View v) {
-                return mAppMenu.onItemLongClick(item, v);
-            }
-        });
+        button.setTag(R.id.menu_item_bound_item, item);
+        button.setOnClickListener(mItemClickListener);
+        button.setOnLongClickListener(mItemLongClickListener);
 
         if (mHighlightedItemId != null && item.getItemId() == mHighlightedItemId) {
-            ViewHighlighter.turnOnHighlight(button, true);
+            ViewHighlighter.turnOnHighlight(
+                    button, true, mAppMenu.getFeatureProfile().getPulseFrameRate());
         } else {
             ViewHighlighter.turnOffHighlight(button);
         }
@@ -191,27 +412,54 @@ class AppMenuAdapter extends BaseAdapter {
     }
 
     private void setupStandardMenuItemViewHolder(StandardMenuItemViewHolder holder,
-                                                 View convertView, final MenuItem item) {
-        // Set up the icon.
+                                                 View convertView, MenuItem item) {
+        // Set up the icon. Rows opening a sub menu without an icon of their own show an arrow.
         Drawable icon = item.getIcon();
+        if (icon == null && mAppMenu.isCascadingSubMenu(item)) {
+            icon = AppCompatResources.getDrawable(
+                    convertView.getContext(), R.drawable.ic_sub_menu_arrow);
+        }
         holder.image.setImageDrawable(icon);
         holder.image.setVisibility(icon == null ? View.GONE : View.VISIBLE);
         holder.image.setChecked(item.isChecked());
         holder.text.setText(item.getTitle());
         holder.text.setContentDescription(item.getTitleCondensed());
 
-        boolean isEnabled = item.isEnabled();
+        // Items still waiting for prepareMenuAsync() are shown as disabled placeholders.
+        boolean isPending = mAppMenu.isMenuItemPending(item.getItemId());
+        holder.image.setAlpha(isPending ? mDisabledAlpha : 1.f);
+        boolean isEnabled = item.isEnabled() && !isPending;
         // Set the text color (using a color state list).
         holder.text.setEnabled(isEnabled);
         // This will ensure that the item is not highlighted when selected.
         convertView.setEnabled(isEnabled);
 
-        convertView.setOnClickListener(new View.OnClickListener() {
-            @Override
-            public void onClick(View v) {
-                mAppMenu.onItemClick(item);
-            }
-        });
+        convertView.setTag(R.id.menu_item_bound_item, item);
+        convertView.setOnClickListener(mItemClickListener);
+        convertView.setTag(R.id.menu_item_hover_target, item);
+    }
+
+    private View getSubMenuBackView(View convertView, ViewGroup parent) {
+        if (convertView == null || !(convertView.getTag() instanceof SubMenuBackViewHolder)) {
+            SubMenuBackViewHolder holder = new SubMenuBackViewHolder();
+            convertView = mInflater.inflate(R.layout.sub_menu_back_item, parent, false);
+            holder.text = convertView.findViewById(R.id.menu_item_text);
+            ImageView icon = convertView.findViewById(R.id.menu_item_icon);
+            icon.setImageDrawable(AppCompatResources.getDrawable(
+                    convertView.getContext(), R.drawable.ic_sub_menu_back));
+            convertView.setTag(holder);
+            convertView.setTag(R.id.menu_item_original_background, convertView.getBackground());
+            convertView.setOnClickListener(new View.OnClickListener() {
+                @Override
+                public void onClick(View v) {
+                    mAppMenu.closeSubMenu();
+                }
+            });
+        }
+        SubMenuBackViewHolder holder = (SubMenuBackViewHolder) convertView.getTag();
+        holder.text.setText(mLevelParent.getTitle());
+        convertView.setTag(R.id.menu_item_hover_target, null);
+        return convertView;
     }
 
     /**
@@ -242,27 +490,79 @@ class AppMenuAdapter extends BaseAdapter {
         return animation;
     }
 
+    private View getStandardMenuItemView(View convertView, ViewGroup parent, int position) {
+        if (convertView != null && convertView.getTag() instanceof StandardMenuItemViewHolder) {
+            return convertView;
+        }
+        StandardMenuItemViewHolder holder = new StandardMenuItemViewHolder();
+        convertView = mInflater.inflate(R.layout.menu_item, parent, false);
+        holder.text = convertView.findViewById(R.id.menu_item_text);
+        holder.image = convertView.findViewById(R.id.menu_item_icon);
+        convertView.setTag(holder);
+        if (buildsEnterAnimators()) {
+            convertView.setTag(R.id.menu_item_enter_anim_id,
+                    buildStandardItemEnterAnimator(convertView, position));
+        }
+        convertView.setTag(R.id.menu_item_original_background, convertView.getBackground());
+        return convertView;
+    }
+
+    /**
+     * Binds a row of a paged section. Rows whose page hasn't arrived yet are shown as disabled
+     * placeholders.
+     */
+    private void setupPagedSectionRow(StandardMenuItemViewHolder holder, View convertView,
+                                      PagedMenuSection section, int positionInSection,
+                                      @Nullable PagedMenuSection.Entry entry) {
+        Drawable icon = entry == null ? null : entry.getIcon();
+        holder.image.setImageDrawable(icon);
+        holder.image.setVisibility(icon == null ? View.GONE : View.VISIBLE);
+        holder.image.setChecked(false);
+        holder.image.setAlpha(1.f);
+        holder.text.setText(entry == null ? null : entry.getTitle());
+        holder.text.setContentDescription(null);
+        convertView.setTag(R.id.menu_item_hover_target, null);
+
+        boolean isEnabled = entry != null;
+        holder.text.setEnabled(isEnabled);
+        convertView.setEnabled(isEnabled);
+
+        holder.pagedSection = section;
+        holder.positionInSection = positionInSection;
+        holder.pagedEntry = entry;
+        convertView.setOnClickListener(mPagedRowClickListener);
+        ViewHighlighter.turnOffHighlight(convertView);
+    }
+
     @Override
     public View getView(int position, View convertView, ViewGroup parent) {
+        AppMenuTrace.begin(AppMenuTrace.BIND_ROW);
+        try {
+            return getViewInternal(position, convertView, parent);
+        } finally {
+            AppMenuTrace.end();
+        }
+    }
+
+    private View getViewInternal(int position, View convertView, ViewGroup parent) {
+        if (isBackRow(position)) return getSubMenuBackView(convertView, parent);
+
+        int levelPosition = position - getBackRowCount();
+        PagedMenuSectionLoader loader = getSectionLoader(levelPosition);
+        if (loader != null) {
+            int positionInSection = levelPosition - mRowStarts[getMenuItemIndex(levelPosition)];
+            convertView = getStandardMenuItemView(convertView, parent, position);
+            setupPagedSectionRow((StandardMenuItemViewHolder) convertView.getTag(), convertView,
+                    loader.getSection(), positionInSection, loader.getEntry(positionInSection));
+            return convertView;
+        }
+
         final MenuItem item = getItem(position);
         switch (getItemViewType(position)) {
             case MenuItemType.STANDARD: {
-                StandardMenuItemViewHolder holder;
-                if (convertView == null
-                        || !(convertView.getTag() instanceof StandardMenuItemViewHolder)) {
-                    holder = new StandardMenuItemViewHolder();
-                    convertView = mInflater.inflate(R.layout.menu_item, parent, false);
-                    holder.text = convertView.findViewById(R.id.menu_item_text);
-                    holder.image = convertView.findViewById(R.id.menu_item_icon);
-                    convertView.setTag(holder);
-                    convertView.setTag(R.id.menu_item_enter_anim_id,
-                            buildStandardItemEnterAnimator(convertView, position));
-                    convertView.setTag(
-                            R.id.menu_item_original_background, convertView.getBackground());
-                } else {
-                    holder = (StandardMenuItemViewHolder) convertView.getTag();
-                }
-                setupStandardMenuItemViewHolder(holder, convertView, item);
+                convertView = getStandardMenuItemView(convertView, parent, position);
+                setupStandardMenuItemViewHolder(
+                        (StandardMenuItemViewHolder) convertView.getTag(), convertView, item);
                 break;
             }
             case MenuItemType.THREE_BUTTON:
@@ -278,7 +578,7 @@ class AppMenuAdapter extends BaseAdapter {
                 if (!item.hasSubMenu()) {
                     throw new IllegalStateException("No sub menu in a title button");
                 }
-                final MenuItem titleItem = item.getSubMenu().getItem(0);
+                MenuItem titleItem = item.getSubMenu().getItem(0);
                 final MenuItem subItem = item.getSubMenu().getItem(1);
 
                 TitleButtonMenuItemViewHolder holder;
@@ -294,23 +594,24 @@ class AppMenuAdapter extends BaseAdapter {
                             R.id.menu_item_original_background, holder.button.getBackground());
 
                     convertView.setTag(holder);
-                    convertView.setTag(R.id.menu_item_enter_anim_id,
-                            buildStandardItemEnterAnimator(convertView, position));
+                    if (buildsEnterAnimators()) {
+                        convertView.setTag(R.id.menu_item_enter_anim_id,
+                                buildStandardItemEnterAnimator(convertView, position));
+                    }
                     convertView.setTag(
                             R.id.menu_item_original_background, convertView.getBackground());
                 } else {
                     holder = (TitleButtonMenuItemViewHolder) convertView.getTag();
                 }
 
+                boolean isTitleEnabled = titleItem.isEnabled()
+                        && !mAppMenu.isMenuItemPending(item.getItemId())
+                        && !mAppMenu.isMenuItemPending(titleItem.getItemId());
                 holder.title.setText(titleItem.getTitle());
-                holder.title.setEnabled(titleItem.isEnabled());
-                holder.title.setFocusable(titleItem.isEnabled());
-                holder.title.setOnClickListener(new View.OnClickListener() {
-                    @Override
-                    public void onClick(View v) {
-                        mAppMenu.onItemClick(titleItem);
-                    }
-                });
+                holder.title.setEnabled(isTitleEnabled);
+                holder.title.setFocusable(isTitleEnabled);
+                holder.title.setTag(R.id.menu_item_bound_item, titleItem);
+                holder.title.setOnClickListener(mItemClickListener);
                 if (TextUtils.isEmpty(titleItem.getTitleCondensed())) {
                     holder.title.setContentDescription(null);
                 } else {
@@ -342,7 +643,8 @@ class AppMenuAdapter extends BaseAdapter {
         }
 
         if (mHighlightedItemId != null && item.getItemId() == mHighlightedItemId) {
-            ViewHighlighter.turnOnHighlight(convertView, false);
+            ViewHighlighter.turnOnHighlight(
+                    convertView, false, mAppMenu.getFeatureProfile().getPulseFrameRate());
         } else {
             ViewHighlighter.turnOffHighlight(convertView);
         }
@@ -420,8 +722,10 @@ class AppMenuAdapter extends BaseAdapter {
             }
 
             convertView.setTag(holder);
-            convertView.setTag(R.id.menu_item_enter_anim_id,
-                    buildIconItemEnterAnimator(holder.buttons));
+            if (buildsEnterAnimators()) {
+                convertView.setTag(R.id.menu_item_enter_anim_id,
+                        buildIconItemEnterAnimator(holder.buttons));
+            }
         } else {
             holder = (RowItemViewHolder) convertView.getTag();
         }
@@ -435,7 +739,7 @@ class AppMenuAdapter extends BaseAdapter {
     }
 
     @IntDef({MenuItemType.STANDARD, MenuItemType.TITLE_BUTTON, MenuItemType.THREE_BUTTON,
-            MenuItemType.FOUR_BUTTON, MenuItemType.FIVE_BUTTON})
+            MenuItemType.FOUR_BUTTON, MenuItemType.FIVE_BUTTON, MenuItemType.SUB_MENU_BACK})
     @Retention(RetentionPolicy.SOURCE)
     private @interface MenuItemType {
         /**
@@ -459,16 +763,28 @@ class AppMenuAdapter extends BaseAdapter {
          * Menu item that has five buttons. Every one of these buttons is displayed as an icon.
          */
         int FIVE_BUTTON = 4;
+        /**
+         * Row shown above the items of a sub menu that leads back to the parent level.
+         */
+        int SUB_MENU_BACK = 5;
         /**
          * The number of view types specified above.  If you add a view type you MUST increment
          * this.
          */
-        int NUM_ENTRIES = 5;
+        int NUM_ENTRIES = 6;
     }
 
     static class StandardMenuItemViewHolder {
         TextView text;
         AppMenuItemIcon image;
+        // The entry shown, if the row belongs to a paged section.
+        PagedMenuSection pagedSection;
+        int positionInSection;
+        PagedMenuSection.Entry pagedEntry;
+    }
+
+    static class SubMenuBackViewHolder {
+        TextView text;
     }
 
     private static class RowItemViewHolder {
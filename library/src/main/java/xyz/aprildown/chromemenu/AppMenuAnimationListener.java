@@ -0,0 +1,28 @@
+package xyz.aprildown.chromemenu;
+
+/**
+ * Told when the App Menu starts and stops animating. Register it with
+ * {@link AppMenuHandler#addAnimationListener(AppMenuAnimationListener)}.
+ */
+public interface AppMenuAnimationListener {
+    /**
+     * Informs when the menu starts to animate in, right after
+     * {@link AppMenuObserver#onMenuVisibilityChanged(boolean)} with {@code true}.
+     *
+     * @param mode How the content of the menu animates in. {@link AppMenuEnterAnimationMode#NONE}
+     *             if it doesn't, even when the popup window still does.
+     */
+    void onMenuEnterAnimationStarted(@AppMenuEnterAnimationMode int mode);
+
+    /**
+     * Informs when both the popup window animation and the animation of the menu items have
+     * finished. Also called when the menu is dismissed before they finish.
+     */
+    void onMenuEnterAnimationFinished();
+
+    /**
+     * Informs when the popup window has finished animating out after
+     * {@link AppMenuObserver#onMenuVisibilityChanged(boolean)} with {@code false}.
+     */
+    void onMenuExitAnimationFinished();
+}
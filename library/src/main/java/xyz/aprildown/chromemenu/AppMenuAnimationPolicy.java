@@ -0,0 +1,149 @@
+package xyz.aprildown.chromemenu;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.os.Build;
+import android.os.PowerManager;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.RequiresApi;
+
+/**
+ * Reduces the decorative effects of the App Menu while battery saver is on or the device is
+ * getting hot. The state is read once when the menu is first shown and then kept by listening to
+ * its changes, so showing the menu doesn't query the power manager.
+ * <p>
+ * Subclass it and pass it to {@link AppMenuHandler#setAnimationPolicy(AppMenuAnimationPolicy)} to
+ * change what is reduced and when.
+ */
+public class AppMenuAnimationPolicy {
+    private static final int REDUCED_PULSE_FRAME_RATE = 30;
+
+    private final Context mAppContext;
+    private final PowerManager mPowerManager;
+    private Runnable mOnChanged;
+    private BroadcastReceiver mPowerSaveModeReceiver;
+    private ThermalStatusListener mThermalStatusListener;
+    private boolean mIsListening;
+    /**
+     * The state last read while listening.
+     */
+    private boolean mPowerSaveMode;
+    private int mThermalStatus;
+
+    /**
+     * @param context Any context, only the application context is kept.
+     */
+    public AppMenuAnimationPolicy(@NonNull Context context) {
+        mAppContext = context.getApplicationContext();
+        mPowerManager = (PowerManager) mAppContext.getSystemService(Context.POWER_SERVICE);
+    }
+
+    /**
+     * @return Whether battery saver is on. Called when listening starts and when the mode changes.
+     */
+    protected boolean isPowerSaveMode() {
+        return Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP
+                && mPowerManager != null && mPowerManager.isPowerSaveMode();
+    }
+
+    /**
+     * @return One of the {@code PowerManager.THERMAL_STATUS_*} constants. Always
+     * {@link PowerManager#THERMAL_STATUS_NONE} before Android Q. Called when listening starts,
+     * later changes come from a thermal status listener.
+     */
+    protected int getThermalStatus() {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.Q || mPowerManager == null) {
+            return PowerManager.THERMAL_STATUS_NONE;
+        }
+        return mPowerManager.getCurrentThermalStatus();
+    }
+
+    /**
+     * Turns off every animation while battery saver is on or the device is severely hot, and the
+     * row animations while it is moderately hot.
+     *
+     * @param profile The profile chosen for the device.
+     * @return The profile to use under the current power and thermal state.
+     */
+    @NonNull
+    public AppMenuFeatureProfile apply(@NonNull AppMenuFeatureProfile profile) {
+        boolean powerSaveMode = mIsListening ? mPowerSaveMode : isPowerSaveMode();
+        int thermalStatus = mIsListening ? mThermalStatus : getThermalStatus();
+        if (powerSaveMode || thermalStatus >= PowerManager.THERMAL_STATUS_SEVERE) {
+            return new AppMenuFeatureProfile.Builder(profile)
+                    .setWindowAnimationEnabled(false)
+                    .setItemEnterAnimationEnabled(false)
+                    .setPulseFrameRate(0)
+                    .build();
+        }
+        if (thermalStatus >= PowerManager.THERMAL_STATUS_MODERATE) {
+            return new AppMenuFeatureProfile.Builder(profile)
+                    .setItemEnterAnimationEnabled(false)
+                    .setPulseFrameRate(
+                            Math.min(profile.getPulseFrameRate(), REDUCED_PULSE_FRAME_RATE))
+                    .build();
+        }
+        return profile;
+    }
+
+    /**
+     * Reads the current state and starts listening to power save mode and thermal status changes.
+     * Does nothing if it's already listening.
+     *
+     * @param onChanged Run on the UI thread after the state changed.
+     */
+    void startListening(Runnable onChanged) {
+        mOnChanged = onChanged;
+        if (mIsListening) return;
+        mIsListening = true;
+        mPowerSaveMode = isPowerSaveMode();
+        mThermalStatus = getThermalStatus();
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
+            mPowerSaveModeReceiver = new BroadcastReceiver() {
+                @Override
+                public void onReceive(Context context, Intent intent) {
+                    boolean powerSaveMode = isPowerSaveMode();
+                    if (powerSaveMode == mPowerSaveMode) return;
+                    mPowerSaveMode = powerSaveMode;
+                    if (mOnChanged != null) mOnChanged.run();
+                }
+            };
+            mAppContext.registerReceiver(mPowerSaveModeReceiver,
+                    new IntentFilter(PowerManager.ACTION_POWER_SAVE_MODE_CHANGED));
+        }
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q && mPowerManager != null) {
+            mThermalStatusListener = new ThermalStatusListener();
+            mPowerManager.addThermalStatusListener(mThermalStatusListener);
+        }
+    }
+
+    /**
+     * Stops listening to the changes.
+     */
+    void stopListening() {
+        mOnChanged = null;
+        mIsListening = false;
+        if (mPowerSaveModeReceiver != null) {
+            mAppContext.unregisterReceiver(mPowerSaveModeReceiver);
+            mPowerSaveModeReceiver = null;
+        }
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q && mThermalStatusListener != null) {
+            mPowerManager.removeThermalStatusListener(mThermalStatusListener);
+            mThermalStatusListener = null;
+        }
+    }
+
+    @RequiresApi(Build.VERSION_CODES.Q)
+    private class ThermalStatusListener implements PowerManager.OnThermalStatusChangedListener {
+        @Override
+        public void onThermalStatusChanged(int status) {
+            // The listener is also called with the current status right after it's added.
+            if (status == mThermalStatus) return;
+            mThermalStatus = status;
+            if (mOnChanged != null) mOnChanged.run();
+        }
+    }
+}
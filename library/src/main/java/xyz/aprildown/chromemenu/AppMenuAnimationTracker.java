@@ -0,0 +1,149 @@
+package xyz.aprildown.chromemenu;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.provider.Settings;
+import android.util.SparseIntArray;
+import android.view.animation.AnimationUtils;
+
+import androidx.annotation.AnimRes;
+
+/**
+ * Follows the animations of an {@link AppMenu} and reports their start and end to
+ * {@link AppMenuHandler}.
+ * <p>
+ * The enter animation of a session is made of the popup window animation and the animation of the
+ * menu items, and ends when both have ended. {@link android.widget.PopupWindow} doesn't report the
+ * end of its window animations, so they are considered done once their duration, scaled by the
+ * system window animation scale, has passed since the window was shown or dismissed.
+ */
+class AppMenuAnimationTracker {
+    private final AppMenuHandler mMenuHandler;
+    private final Handler mUiHandler = new Handler(Looper.getMainLooper());
+    /**
+     * Unscaled durations of the window animations keyed by their resource ids, so loading an
+     * animation only happens the first time it's used.
+     */
+    private final SparseIntArray mAnimationDurations = new SparseIntArray();
+    private final Runnable mWindowEnterEndRunnable = new Runnable() {
+        @Override
+        public void run() {
+            mIsWindowEntering = false;
+            maybeFinishEnter();
+        }
+    };
+    private final Runnable mExitEndRunnable = new Runnable() {
+        @Override
+        public void run() {
+            finishExit();
+        }
+    };
+
+    private boolean mIsEntering;
+    private boolean mIsWindowEntering;
+    private boolean mIsItemEntering;
+    private boolean mIsExiting;
+    private long mExitDurationMs;
+
+    AppMenuAnimationTracker(AppMenuHandler menuHandler) {
+        mMenuHandler = menuHandler;
+    }
+
+    /**
+     * Called right after the popup window is shown. The item animation is expected to follow
+     * through {@link #onItemEnterAnimationStarted()} or to be skipped through
+     * {@link #onItemEnterAnimationEnded()}.
+     *
+     * @param context        The context the menu is shown in.
+     * @param enterAnimation The window enter animation, or 0 if window animations are off.
+     * @param exitAnimation  The window exit animation, or 0 if window animations are off.
+     * @param mode           How the content of the menu animates in.
+     */
+    void onShown(Context context, @AnimRes int enterAnimation, @AnimRes int exitAnimation,
+                 @AppMenuEnterAnimationMode int mode) {
+        // A menu shown again before the previous one finished exiting.
+        if (mIsExiting) {
+            mUiHandler.removeCallbacks(mExitEndRunnable);
+            finishExit();
+        }
+
+        float scale = getWindowAnimationScale(context);
+        long enterDurationMs = (long) (getAnimationDuration(context, enterAnimation) * scale);
+        mExitDurationMs = (long) (getAnimationDuration(context, exitAnimation) * scale);
+
+        mIsEntering = true;
+        mIsItemEntering = true;
+        mIsWindowEntering = enterDurationMs > 0;
+        mMenuHandler.onMenuEnterAnimationStarted(mode);
+        if (mIsWindowEntering) mUiHandler.postDelayed(mWindowEnterEndRunnable, enterDurationMs);
+    }
+
+    void onItemEnterAnimationStarted() {
+        mIsItemEntering = true;
+    }
+
+    /**
+     * Called when the item animation ends, is canceled or is skipped.
+     */
+    void onItemEnterAnimationEnded() {
+        mIsItemEntering = false;
+        maybeFinishEnter();
+    }
+
+    /**
+     * Called when the popup window is dismissed, before observers learn that the menu is hidden.
+     * An enter animation that is still running is reported as finished.
+     */
+    void onDismissing() {
+        mUiHandler.removeCallbacks(mWindowEnterEndRunnable);
+        mIsWindowEntering = false;
+        mIsItemEntering = false;
+        maybeFinishEnter();
+    }
+
+    /**
+     * Called when the popup window is dismissed, after observers learn that the menu is hidden.
+     */
+    void onDismissed() {
+        mIsExiting = true;
+        if (mExitDurationMs > 0) {
+            mUiHandler.postDelayed(mExitEndRunnable, mExitDurationMs);
+        } else {
+            finishExit();
+        }
+    }
+
+    /**
+     * @return Whether an enter or exit animation is running.
+     */
+    boolean isAnimating() {
+        return mIsEntering || mIsExiting;
+    }
+
+    private void maybeFinishEnter() {
+        if (!mIsEntering || mIsWindowEntering || mIsItemEntering) return;
+        mIsEntering = false;
+        mMenuHandler.onMenuEnterAnimationFinished();
+    }
+
+    private void finishExit() {
+        mIsExiting = false;
+        mMenuHandler.onMenuExitAnimationFinished();
+    }
+
+    private int getAnimationDuration(Context context, @AnimRes int animation) {
+        if (animation == 0) return 0;
+        int index = mAnimationDurations.indexOfKey(animation);
+        if (index >= 0) return mAnimationDurations.valueAt(index);
+        int duration =
+                (int) AnimationUtils.loadAnimation(context, animation).computeDurationHint();
+        mAnimationDurations.put(animation, duration);
+        return duration;
+    }
+
+    private static float getWindowAnimationScale(Context context) {
+        return Settings.Global.getFloat(
+                context.getContentResolver(), Settings.Global.WINDOW_ANIMATION_SCALE, 1f);
+    }
+}
@@ -0,0 +1,130 @@
+package xyz.aprildown.chromemenu;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.util.SparseArray;
+import android.util.SparseBooleanArray;
+import android.view.Menu;
+import android.view.MenuItem;
+
+import androidx.annotation.NonNull;
+import xyz.aprildown.chromemenu.AsyncAppMenuPropertiesDelegate.ItemUpdate;
+
+/**
+ * Runs {@link AsyncAppMenuPropertiesDelegate#prepareMenuAsync(Menu,
+ * AsyncAppMenuPropertiesDelegate.Updater)} for an {@link AppMenuHandler}. It keeps track of the
+ * pending items, applies updates on the UI thread as they arrive and falls back to the last known
+ * state of the items that are still pending when the deadline passes.
+ */
+class AppMenuAsyncPreparer {
+    private final AsyncAppMenuPropertiesDelegate mDelegate;
+    private final AppMenuHandler mMenuHandler;
+    private final Handler mUiHandler = new Handler(Looper.getMainLooper());
+    /**
+     * The last update applied to each item. Reused when a later preparation times out.
+     */
+    private final SparseArray<ItemUpdate> mLastKnownUpdates = new SparseArray<>();
+    private final SparseBooleanArray mPendingItemIds = new SparseBooleanArray();
+    private final Runnable mTimeoutRunnable = new Runnable() {
+        @Override
+        public void run() {
+            onTimeout();
+        }
+    };
+    private Menu mMenu;
+    /**
+     * Incremented on every preparation so that late updates of an earlier one can be dropped.
+     */
+    private int mGeneration;
+
+    AppMenuAsyncPreparer(AsyncAppMenuPropertiesDelegate delegate, AppMenuHandler menuHandler) {
+        mDelegate = delegate;
+        mMenuHandler = menuHandler;
+    }
+
+    /**
+     * Starts a new preparation of {@code menu}. Must be called on the UI thread before the menu is
+     * shown so the pending items are known when the rows are bound.
+     */
+    void prepare(Menu menu) {
+        mUiHandler.removeCallbacks(mTimeoutRunnable);
+        mPendingItemIds.clear();
+        mMenu = menu;
+        mGeneration++;
+
+        mDelegate.prepareMenuAsync(menu, new Session(mGeneration));
+
+        if (mPendingItemIds.size() > 0) {
+            mUiHandler.postDelayed(
+                    mTimeoutRunnable, Math.max(0, mDelegate.getPrepareMenuTimeoutMs()));
+        }
+    }
+
+    /**
+     * @return Whether the item is still waiting for its update.
+     */
+    boolean isPending(int itemId) {
+        return mPendingItemIds.get(itemId);
+    }
+
+    private void onUpdate(int generation, int itemId, ItemUpdate update) {
+        if (generation != mGeneration) return;
+
+        mPendingItemIds.delete(itemId);
+        mLastKnownUpdates.put(itemId, update);
+        applyUpdate(itemId, update);
+
+        if (mPendingItemIds.size() == 0) mUiHandler.removeCallbacks(mTimeoutRunnable);
+    }
+
+    private void onTimeout() {
+        int[] itemIds = new int[mPendingItemIds.size()];
+        for (int i = 0; i < itemIds.length; i++) {
+            itemIds[i] = mPendingItemIds.keyAt(i);
+        }
+        mPendingItemIds.clear();
+
+        for (int itemId : itemIds) {
+            ItemUpdate lastKnownUpdate = mLastKnownUpdates.get(itemId);
+            if (lastKnownUpdate != null) {
+                applyUpdate(itemId, lastKnownUpdate);
+            } else {
+                // Nothing to fall back to, keep the state from prepareMenu() but drop the
+                // placeholder.
+                mMenuHandler.onMenuItemPrepared(itemId, false);
+            }
+        }
+    }
+
+    private void applyUpdate(int itemId, ItemUpdate update) {
+        MenuItem item = mMenu.findItem(itemId);
+        if (item == null) return;
+
+        boolean wasVisible = item.isVisible();
+        update.apply(item);
+        mMenuHandler.onMenuItemPrepared(itemId, wasVisible != item.isVisible());
+    }
+
+    private class Session implements AsyncAppMenuPropertiesDelegate.Updater {
+        private final int mSessionGeneration;
+
+        Session(int generation) {
+            mSessionGeneration = generation;
+        }
+
+        @Override
+        public void setPending(int itemId) {
+            if (mSessionGeneration == mGeneration) mPendingItemIds.put(itemId, true);
+        }
+
+        @Override
+        public void update(final int itemId, @NonNull final ItemUpdate update) {
+            mUiHandler.post(new Runnable() {
+                @Override
+                public void run() {
+                    onUpdate(mSessionGeneration, itemId, update);
+                }
+            });
+        }
+    }
+}
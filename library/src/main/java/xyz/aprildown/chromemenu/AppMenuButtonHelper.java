@@ -6,6 +6,7 @@ package xyz.aprildown.chromemenu;
 
 import android.annotation.SuppressLint;
 import android.os.Bundle;
+import android.os.SystemClock;
 import android.view.MotionEvent;
 import android.view.SoundEffectConstants;
 import android.view.View;
@@ -14,6 +15,8 @@ import android.view.View.OnTouchListener;
 import android.view.accessibility.AccessibilityEvent;
 import android.view.accessibility.AccessibilityNodeInfo;
 
+import androidx.annotation.Nullable;
+
 /**
  * A helper class for a menu button to decide when to show the app menu and forward touch
  * events.
@@ -28,6 +31,7 @@ public class AppMenuButtonHelper extends AccessibilityDelegate implements OnTouc
     private boolean mShowMenuOnUp;
     private boolean mMenuShowsFromBottom;
     private Runnable mOnClickRunnable;
+    private AppMenuGestureRecorder mGestureRecorder;
 
     /**
      * @param menuHandler MenuHandler implementation that can show and get the app menu.
@@ -63,11 +67,13 @@ public class AppMenuButtonHelper extends AccessibilityDelegate implements OnTouc
      *
      * @param view           View that initiated showing this menu. Normally it is a menu button.
      * @param startDragging  Whether dragging is started.
+     * @param inputTime      The {@link SystemClock#uptimeMillis()} time of the input requesting
+     *                       the menu.
      * @return Whether or not if the app menu is successfully shown.
      */
-    private boolean showAppMenu(View view, boolean startDragging) {
-        if (!mMenuHandler.isAppMenuShowing()
-                && mMenuHandler.showAppMenu(view, startDragging, mMenuShowsFromBottom)) {
+    private boolean showAppMenu(View view, boolean startDragging, long inputTime) {
+        if (!mMenuHandler.isAppMenuShowing() && mMenuHandler.showAppMenu(
+                view, startDragging, mMenuShowsFromBottom, inputTime)) {
             // Initial start dragging can be canceled in case if it was just single tap.
             // So we only record non-dragging here, and will deal with those dragging cases in
             // AppMenuDragHelper class.
@@ -96,7 +102,7 @@ public class AppMenuButtonHelper extends AccessibilityDelegate implements OnTouc
      * @return Whether the app menu was shown as a result of this action.
      */
     public boolean onEnterKeyPress(View view) {
-        return showAppMenu(view, false);
+        return showAppMenu(view, false, SystemClock.uptimeMillis());
     }
 
     /**
@@ -121,9 +127,20 @@ public class AppMenuButtonHelper extends AccessibilityDelegate implements OnTouc
         mOnClickRunnable = clickRunnable;
     }
 
+    /**
+     * Records the touch gestures on the menu button, for example in dogfood builds to collect
+     * drag selection performance fixtures.
+     *
+     * @param recorder The recorder, or {@code null} to stop recording.
+     */
+    public void setGestureRecorder(@Nullable AppMenuGestureRecorder recorder) {
+        mGestureRecorder = recorder;
+    }
+
     @SuppressLint("ClickableViewAccessibility")
     @Override
     public boolean onTouch(View view, MotionEvent event) {
+        if (mGestureRecorder != null) mGestureRecorder.onTouchEvent(view, event);
         boolean isTouchEventConsumed = false;
 
         switch (event.getActionMasked()) {
@@ -132,13 +149,13 @@ public class AppMenuButtonHelper extends AccessibilityDelegate implements OnTouc
                     isTouchEventConsumed = true;
                     updateTouchEvent(view, true);
                     if (mOnClickRunnable != null) mOnClickRunnable.run();
-                    showAppMenu(view, true);
+                    showAppMenu(view, true, event.getEventTime());
                 }
                 break;
             case MotionEvent.ACTION_UP:
                 isTouchEventConsumed = true;
                 updateTouchEvent(view, false);
-                if (mShowMenuOnUp) showAppMenu(view, false);
+                if (mShowMenuOnUp) showAppMenu(view, false, event.getEventTime());
                 break;
             case MotionEvent.ACTION_CANCEL:
                 isTouchEventConsumed = true;
@@ -161,7 +178,7 @@ public class AppMenuButtonHelper extends AccessibilityDelegate implements OnTouc
     public boolean performAccessibilityAction(View host, int action, Bundle args) {
         if (action == AccessibilityNodeInfo.ACTION_CLICK) {
             if (!mMenuHandler.isAppMenuShowing()) {
-                showAppMenu(host, false);
+                showAppMenu(host, false, SystemClock.uptimeMillis());
             } else {
                 mMenuHandler.hideAppMenu();
             }
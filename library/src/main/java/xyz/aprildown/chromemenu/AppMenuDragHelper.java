@@ -9,9 +9,12 @@ import android.annotation.SuppressLint;
 import android.content.Context;
 import android.content.res.Resources;
 import android.graphics.Rect;
+import android.os.SystemClock;
 import android.view.MotionEvent;
 import android.view.View;
 import android.view.ViewConfiguration;
+import android.view.ViewTreeObserver;
+import android.view.animation.AnimationUtils;
 import android.widget.ImageButton;
 import android.widget.LinearLayout;
 import android.widget.ListView;
@@ -32,6 +35,7 @@ import androidx.annotation.IntDef;
 class AppMenuDragHelper {
     private static final float AUTO_SCROLL_AREA_MAX_RATIO = 0.25f;
     private final AppMenu mAppMenu;
+    private final AppMenuMetricsRecorder mMetricsRecorder;
     // Dragging related variables, i.e., menu showing initiated by touch down and drag to navigate.
     private final float mAutoScrollFullVelocity;
     private final TimeAnimator mDragScrolling = new TimeAnimator();
@@ -40,6 +44,8 @@ class AppMenuDragHelper {
     // touch event.
     private final Rect mScreenVisibleRect = new Rect();
     private final int[] mScreenVisiblePoint = new int[2];
+    private final ArrayList<View> mItemViews = new ArrayList<>();
+    private final DragHitTester mHitTester = new DragHitTester();
     private final int mTapTimeout;
     private final int mScaledTouchSlop;
     private float mDragScrollOffset;
@@ -49,9 +55,44 @@ class AppMenuDragHelper {
     private volatile float mLastTouchY;
     private boolean mIsSingleTapCanceled;
     private int mMenuButtonScreenCenterY;
+    // The row under the finger, the time it got there and the dwell time at which
+    // AppMenu#onItemHoverDwell() should be called next.
+    private View mHoveredView;
+    private long mHoverStartTime;
+    private long mNextHoverDwellMs;
+    // The time of the event being handled, and of the oldest highlight change and auto-scroll
+    // step that haven't been drawn yet, or 0. All in SystemClock#uptimeMillis() time.
+    private long mInputTimeMs;
+    private long mPendingHighlightInputTimeMs;
+    private long mPendingScrollInputTimeMs;
+    private ViewTreeObserver mLatencyObserver;
+    /**
+     * Records the latency of the highlight changes and auto-scroll steps drawn by a frame. The
+     * draw pass happens on the UI thread right before the frame is handed to the RenderThread.
+     */
+    private final ViewTreeObserver.OnDrawListener mLatencyDrawListener =
+            new ViewTreeObserver.OnDrawListener() {
+                @Override
+                public void onDraw() {
+                    // uptimeMillis() and nanoTime() both use the monotonic clock.
+                    long nowMicros = System.nanoTime() / 1000;
+                    if (mPendingHighlightInputTimeMs != 0) {
+                        mMetricsRecorder.recordHighlightLatency(
+                                nowMicros - mPendingHighlightInputTimeMs * 1000);
+                        mPendingHighlightInputTimeMs = 0;
+                    }
+                    if (mPendingScrollInputTimeMs != 0) {
+                        mMetricsRecorder.recordAutoScrollLatency(
+                                nowMicros - mPendingScrollInputTimeMs * 1000);
+                        mPendingScrollInputTimeMs = 0;
+                    }
+                }
+            };
 
-    AppMenuDragHelper(Context context, AppMenu appMenu, int itemRowHeight) {
+    AppMenuDragHelper(Context context, AppMenu appMenu, int itemRowHeight,
+                      AppMenuMetricsRecorder metricsRecorder) {
         mAppMenu = appMenu;
+        mMetricsRecorder = metricsRecorder;
         mItemRowHeight = itemRowHeight;
         Resources res = context.getResources();
         mAutoScrollFullVelocity = res.getDimensionPixelSize(R.dimen.auto_scroll_full_velocity);
@@ -63,6 +104,7 @@ class AppMenuDragHelper {
             public void onTimeUpdate(TimeAnimator animation, long totalTime, long deltaTime) {
                 if (mAppMenu.getListView() == null) return;
 
+                AppMenuTrace.begin(AppMenuTrace.AUTO_SCROLL_FRAME);
                 // We keep both mDragScrollOffset and mDragScrollOffsetRounded because
                 // the actual scrolling is by the rounded value but at the same time we also
                 // want to keep the precise scroll value in float.
@@ -71,11 +113,17 @@ class AppMenuDragHelper {
                 mDragScrollOffsetRounded += diff;
                 mAppMenu.getListView().smoothScrollBy(diff, 0);
 
+                mInputTimeMs = AnimationUtils.currentAnimationTimeMillis();
+                if (diff != 0 && mPendingScrollInputTimeMs == 0) {
+                    mPendingScrollInputTimeMs = mInputTimeMs;
+                }
+
                 // Force touch move event to highlight items correctly for the scrolled position.
                 if (!Float.isNaN(mLastTouchX) && !Float.isNaN(mLastTouchY)) {
                     menuItemAction(
                             Math.round(mLastTouchX), Math.round(mLastTouchY), ItemAction.HIGHLIGHT);
                 }
+                AppMenuTrace.end();
             }
         });
 
@@ -101,8 +149,20 @@ class AppMenuDragHelper {
         mDragScrollOffsetRounded = 0;
         mDragScrollingVelocity = 0.0f;
         mIsSingleTapCanceled = false;
+        mHoveredView = null;
+
+        mPendingHighlightInputTimeMs = 0;
+        mPendingScrollInputTimeMs = 0;
 
-        if (startDragging) mDragScrolling.start();
+        if (startDragging) {
+            mDragScrolling.start();
+            mMetricsRecorder.onDragStarted();
+            ListView listView = mAppMenu.getListView();
+            if (mMetricsRecorder.isRecording() && listView != null) {
+                mLatencyObserver = listView.getViewTreeObserver();
+                mLatencyObserver.addOnDrawListener(mLatencyDrawListener);
+            }
+        }
     }
 
     /**
@@ -117,6 +177,51 @@ class AppMenuDragHelper {
             menuItemAction(0, 0, ItemAction.CLEAR_HIGHLIGHT_ALL);
         }
         mDragScrolling.cancel();
+        mHoveredView = null;
+        mMetricsRecorder.onDragFinished();
+        if (mLatencyObserver != null) {
+            if (mLatencyObserver.isAlive()) {
+                mLatencyObserver.removeOnDrawListener(mLatencyDrawListener);
+            }
+            mLatencyObserver = null;
+        }
+    }
+
+    /**
+     * Restarts hover tracking after a sub menu level has been opened or closed, since the rows
+     * under the finger now show other items.
+     */
+    void onMenuLevelChanged() {
+        mHoveredView = null;
+    }
+
+    /**
+     * Tracks how long the same row stays under the finger and lets the menu react to it, for
+     * example by opening a sub menu. Rows are re-checked on every animation frame while dragging,
+     * so no timer is needed.
+     *
+     * @param rowView The row of the list under the finger, or {@code null}.
+     */
+    private void updateHoveredRow(View rowView) {
+        long now = SystemClock.uptimeMillis();
+        if (rowView != mHoveredView) {
+            if (rowView != null) mMetricsRecorder.onItemTraversed();
+            ListView listView = mAppMenu.getListView();
+            mMetricsRecorder.onHighlightChanged(rowView != null && listView != null
+                    ? listView.getPositionForView(rowView) : ListView.INVALID_POSITION);
+            mHoveredView = rowView;
+            mHoverStartTime = now;
+            mNextHoverDwellMs = 0;
+        }
+        if (rowView == null) return;
+
+        long dwellMs = now - mHoverStartTime;
+        if (dwellMs < mNextHoverDwellMs) return;
+        long nextDwellMs = mAppMenu.onItemHoverDwell(rowView, dwellMs);
+        // Opening or closing a level resets the tracking.
+        if (mHoveredView == rowView) {
+            mNextHoverDwellMs = nextDwellMs < 0 ? Long.MAX_VALUE : nextDwellMs;
+        }
     }
 
     /**
@@ -130,6 +235,15 @@ class AppMenuDragHelper {
      * @return Whether the event is handled.
      */
     boolean handleDragging(MotionEvent event, View button) {
+        AppMenuTrace.begin(AppMenuTrace.HANDLE_DRAGGING);
+        try {
+            return handleDraggingInternal(event, button);
+        } finally {
+            AppMenuTrace.end();
+        }
+    }
+
+    private boolean handleDraggingInternal(MotionEvent event, View button) {
         if (!mAppMenu.isShowing() || !mDragScrolling.isRunning()) return false;
 
         // We will only use the screen space coordinate (rawX, rawY) to reduce confusion.
@@ -146,15 +260,13 @@ class AppMenuDragHelper {
 
         mLastTouchX = rawX;
         mLastTouchY = rawY;
+        mInputTimeMs = event.getEventTime();
         mMenuButtonScreenCenterY = getScreenVisibleRect(button).centerY();
 
         if (eventActionMasked == MotionEvent.ACTION_CANCEL) {
             mAppMenu.dismiss();
             return true;
-        }/* else if (eventActionMasked == MotionEvent.ACTION_UP) {
-            RecordHistogram.recordTimesHistogram(
-                    "WrenchMenu.TouchDuration", timeSinceDown, TimeUnit.MILLISECONDS);
-        }*/
+        }
 
         mIsSingleTapCanceled |= timeSinceDown > mTapTimeout;
         mIsSingleTapCanceled |= !pointInView(button, event.getX(), event.getY(), mScaledTouchSlop);
@@ -176,6 +288,7 @@ class AppMenuDragHelper {
                 break;
             case MotionEvent.ACTION_UP:
                 itemAction = ItemAction.PERFORM;
+                mMetricsRecorder.onItemSelected(event.getEventTime());
                 break;
             default:
                 break;
@@ -186,6 +299,7 @@ class AppMenuDragHelper {
             /*RecordUserAction.record("MobileUsingMenuBySwButtonDragging");*/
             mAppMenu.dismiss();
         } else if (eventActionMasked == MotionEvent.ACTION_MOVE) {
+            boolean wasAutoScrolling = mDragScrollingVelocity != 0.0f;
             // Auto scrolling on the top or the bottom of the listView.
             if (listView.getHeight() > 0) {
                 float autoScrollAreaRatio = Math.min(AUTO_SCROLL_AREA_MAX_RATIO,
@@ -205,6 +319,12 @@ class AppMenuDragHelper {
                     mDragScrollingVelocity = 0.0f;
                 }
             }
+            boolean isAutoScrolling = mDragScrollingVelocity != 0.0f;
+            if (isAutoScrolling && !wasAutoScrolling) {
+                mMetricsRecorder.onAutoScrollStarted();
+            } else if (!isAutoScrolling && wasAutoScrolling) {
+                mMetricsRecorder.onAutoScrollStopped();
+            }
         }
 
         return true;
@@ -241,7 +361,8 @@ class AppMenuDragHelper {
             return false;
         }
 
-        ArrayList<View> itemViews = new ArrayList<>();
+        ArrayList<View> itemViews = mItemViews;
+        itemViews.clear();
         for (int i = 0; i < listView.getChildCount(); ++i) {
             boolean hasImageButtons = false;
             if (listView.getChildAt(i) instanceof LinearLayout) {
@@ -254,16 +375,30 @@ class AppMenuDragHelper {
             if (!hasImageButtons) itemViews.add(listView.getChildAt(i));
         }
 
-        boolean didPerformClick = false;
+        mHitTester.clear();
         for (int i = 0; i < itemViews.size(); ++i) {
             View itemView = itemViews.get(i);
+            if (itemView.isEnabled() && itemView.isShown()) {
+                Rect rect = getScreenVisibleRect(itemView);
+                mHitTester.add(rect.left, rect.top, rect.right, rect.bottom, true);
+            } else {
+                mHitTester.add(0, 0, 0, 0, false);
+            }
+        }
+        mHitTester.resolve(screenX, screenY);
 
-            boolean shouldPerform = itemView.isEnabled() && itemView.isShown()
-                    && getScreenVisibleRect(itemView).contains(screenX, screenY);
+        boolean didPerformClick = false;
+        boolean highlightChanged = false;
+        View hoveredRow = null;
+        for (int i = 0; i < itemViews.size(); ++i) {
+            View itemView = itemViews.get(i);
+            boolean shouldPerform = mHitTester.isHit(i);
 
             switch (action) {
                 case ItemAction.HIGHLIGHT:
+                    highlightChanged |= itemView.isPressed() != shouldPerform;
                     itemView.setPressed(shouldPerform);
+                    if (shouldPerform && itemView.getParent() == listView) hoveredRow = itemView;
                     break;
                 case ItemAction.PERFORM:
                     if (shouldPerform) {
@@ -279,6 +414,13 @@ class AppMenuDragHelper {
                     throw new IllegalStateException("Wrong item action: " + action);
             }
         }
+        if (action == ItemAction.HIGHLIGHT) {
+            if (highlightChanged && mPendingHighlightInputTimeMs == 0) {
+                mPendingHighlightInputTimeMs = mInputTimeMs;
+            }
+            updateHoveredRow(hoveredRow);
+        }
+        itemViews.clear();
         return didPerformClick;
     }
 
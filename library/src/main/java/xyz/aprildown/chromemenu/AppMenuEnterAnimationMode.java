@@ -0,0 +1,31 @@
+package xyz.aprildown.chromemenu;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+
+import androidx.annotation.IntDef;
+
+/**
+ * How the content of the App Menu animates in, see
+ * {@link AppMenuHandler#setEnterAnimationMode(int)}.
+ */
+@IntDef({AppMenuEnterAnimationMode.STAGGER, AppMenuEnterAnimationMode.REVEAL,
+        AppMenuEnterAnimationMode.NONE})
+@Retention(RetentionPolicy.SOURCE)
+public @interface AppMenuEnterAnimationMode {
+    /**
+     * The window animates in and the rows fade in one after another, unless the feature profile
+     * turns these animations off.
+     */
+    int STAGGER = 0;
+    /**
+     * The whole menu, background included, is revealed by a single animation instead of the
+     * window animation, without any work per row. On Android L and later it's a circular reveal,
+     * which runs on the render thread.
+     */
+    int REVEAL = 1;
+    /**
+     * Neither the content nor the window animates.
+     */
+    int NONE = 2;
+}
@@ -0,0 +1,179 @@
+package xyz.aprildown.chromemenu;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+
+import androidx.annotation.IntDef;
+import androidx.annotation.NonNull;
+
+/**
+ * A log of the recent events of an App Menu, kept in a fixed-size ring buffer of longs. Useful to
+ * find out what happened when a menu felt slow.
+ * <p>
+ * Events are written by the UI thread only, without locks or allocations. Every event takes two
+ * longs: the {@link System#nanoTime()} at which it happened, and its {@link EventType} in the top
+ * byte followed by an argument. {@link #dump(PrintWriter)} and {@link #dump(File)} can be called
+ * from any thread, events overwritten while dumping are skipped.
+ * <p>
+ * Binary dumps are read back with {@link AppMenuEventLogDecoder}.
+ */
+public final class AppMenuEventLog {
+    /**
+     * The first long of a binary dump.
+     */
+    static final long MAGIC = 0x4170704d656e7531L;
+    static final int TYPE_SHIFT = 56;
+    static final long ARGUMENT_MASK = (1L << TYPE_SHIFT) - 1;
+
+    private static final int DEFAULT_CAPACITY = 256;
+
+    private final long[] mBuffer;
+    private final int mMask;
+    /**
+     * The number of events ever written. Written after the event itself so that readers never
+     * see an event before it is complete.
+     */
+    private volatile long mWriteCount;
+
+    AppMenuEventLog() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param capacity The number of events kept, rounded up to a power of two.
+     */
+    AppMenuEventLog(int capacity) {
+        int events = Integer.highestOneBit(Math.max(1, capacity - 1)) << 1;
+        mBuffer = new long[events * 2];
+        mMask = events - 1;
+    }
+
+    /**
+     * Records an event. Must be called on the UI thread.
+     *
+     * @param type     The type of the event.
+     * @param argument Its argument, see {@link EventType}. Only the low 56 bits are kept.
+     */
+    void log(@EventType int type, long argument) {
+        long count = mWriteCount;
+        int slot = ((int) count & mMask) * 2;
+        mBuffer[slot] = System.nanoTime();
+        mBuffer[slot + 1] = ((long) type << TYPE_SHIFT) | (argument & ARGUMENT_MASK);
+        mWriteCount = count + 1;
+    }
+
+    /**
+     * @return The number of events ever logged.
+     */
+    long getWriteCount() {
+        return mWriteCount;
+    }
+
+    /**
+     * @return The number of events kept.
+     */
+    public int getCapacity() {
+        return mMask + 1;
+    }
+
+    /**
+     * Copies the events still in the buffer, oldest first.
+     *
+     * @return The events, two longs each.
+     */
+    long[] snapshot() {
+        long end = mWriteCount;
+        long start = Math.max(0, end - getCapacity());
+        long[] events = new long[(int) (end - start) * 2];
+        for (long i = start; i < end; i++) {
+            int slot = ((int) i & mMask) * 2;
+            int index = (int) (i - start) * 2;
+            events[index] = mBuffer[slot];
+            events[index + 1] = mBuffer[slot + 1];
+        }
+
+        // The writer may have lapped the oldest copied events while they were being copied,
+        // including the slot of the event it may be writing right now.
+        long overwritten = mWriteCount + 1 - getCapacity() - start;
+        if (overwritten <= 0) return events;
+        int skipped = (int) Math.min(overwritten, end - start) * 2;
+        long[] valid = new long[events.length - skipped];
+        System.arraycopy(events, skipped, valid, 0, valid.length);
+        return valid;
+    }
+
+    /**
+     * Writes the events as text, oldest first.
+     */
+    public void dump(@NonNull PrintWriter writer) {
+        AppMenuEventLogDecoder.print(snapshot(), writer);
+        writer.flush();
+    }
+
+    /**
+     * Writes the events to a binary file that can be read by
+     * {@link AppMenuEventLogDecoder#decode(java.io.InputStream)}.
+     */
+    public void dump(@NonNull File file) throws IOException {
+        long[] events = snapshot();
+        DataOutputStream output = new DataOutputStream(new FileOutputStream(file));
+        try {
+            output.writeLong(MAGIC);
+            output.writeInt(events.length / 2);
+            for (long value : events) output.writeLong(value);
+        } finally {
+            output.close();
+        }
+    }
+
+    @IntDef({EventType.SHOW_REQUESTED, EventType.PREPARED, EventType.SHOWN, EventType.FIRST_FRAME,
+            EventType.HIGHLIGHT_CHANGED, EventType.AUTO_SCROLL_STARTED,
+            EventType.AUTO_SCROLL_STOPPED, EventType.CLICK_DISPATCHED, EventType.DISMISSED})
+    @Retention(RetentionPolicy.SOURCE)
+    public @interface EventType {
+        /**
+         * The menu was requested. The argument is the time of the input in
+         * {@link android.os.SystemClock#uptimeMillis()}.
+         */
+        int SHOW_REQUESTED = 1;
+        /**
+         * {@link AppMenuPropertiesDelegate#prepareMenu} returned. No argument.
+         */
+        int PREPARED = 2;
+        /**
+         * The popup was added to the window. The argument is the number of rows.
+         */
+        int SHOWN = 3;
+        /**
+         * The first frame of the popup is being drawn. No argument.
+         */
+        int FIRST_FRAME = 4;
+        /**
+         * The row under the finger changed while dragging. The argument is the list position of
+         * the new row, or all ones if no row is under the finger.
+         */
+        int HIGHLIGHT_CHANGED = 5;
+        /**
+         * The list started scrolling because the finger is near one of its edges. No argument.
+         */
+        int AUTO_SCROLL_STARTED = 6;
+        /**
+         * The list stopped scrolling. No argument.
+         */
+        int AUTO_SCROLL_STOPPED = 7;
+        /**
+         * An item was passed to {@link AppMenuPropertiesDelegate#onMenuItemClicked}. The argument
+         * is the id of the item.
+         */
+        int CLICK_DISPATCHED = 8;
+        /**
+         * The menu was dismissed. No argument.
+         */
+        int DISMISSED = 9;
+    }
+}
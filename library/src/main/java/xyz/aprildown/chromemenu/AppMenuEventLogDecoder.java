@@ -0,0 +1,129 @@
+package xyz.aprildown.chromemenu;
+
+import java.io.DataInputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintWriter;
+import java.util.Locale;
+
+import androidx.annotation.NonNull;
+
+/**
+ * Turns the events of an {@link AppMenuEventLog} back into text. Binary dumps can also be decoded
+ * on a computer:
+ * <pre>
+ * java -cp classes.jar xyz.aprildown.chromemenu.AppMenuEventLogDecoder menu_events.bin
+ * </pre>
+ * This class doesn't depend on Android.
+ */
+public final class AppMenuEventLogDecoder {
+    private static final long NANOS_PER_MILLI = 1000000L;
+
+    private AppMenuEventLogDecoder() {
+    }
+
+    /**
+     * Reads a binary dump written by {@link AppMenuEventLog#dump(java.io.File)}.
+     *
+     * @return The events, two longs each, oldest first.
+     * @throws IOException If the stream isn't a dump of an event log.
+     */
+    @NonNull
+    public static long[] decode(@NonNull InputStream input) throws IOException {
+        DataInputStream data = new DataInputStream(input);
+        if (data.readLong() != AppMenuEventLog.MAGIC) {
+            throw new IOException("Not an App Menu event log");
+        }
+        int count = data.readInt();
+        if (count < 0) throw new IOException("Invalid event count " + count);
+        long[] events = new long[count * 2];
+        for (int i = 0; i < events.length; i++) events[i] = data.readLong();
+        return events;
+    }
+
+    /**
+     * @return The type of the event at {@code index}.
+     */
+    @AppMenuEventLog.EventType
+    public static int getType(@NonNull long[] events, int index) {
+        return (int) (events[index * 2 + 1] >>> AppMenuEventLog.TYPE_SHIFT);
+    }
+
+    /**
+     * @return The {@link System#nanoTime()} time of the event at {@code index}.
+     */
+    public static long getTimeNanos(@NonNull long[] events, int index) {
+        return events[index * 2];
+    }
+
+    /**
+     * @return The argument of the event at {@code index}, sign-extended from 56 bits.
+     */
+    public static long getArgument(@NonNull long[] events, int index) {
+        long packed = events[index * 2 + 1];
+        int unusedBits = 64 - AppMenuEventLog.TYPE_SHIFT;
+        return (packed << unusedBits) >> unusedBits;
+    }
+
+    /**
+     * @return The name of an event type.
+     */
+    @NonNull
+    public static String getTypeName(@AppMenuEventLog.EventType int type) {
+        switch (type) {
+            case AppMenuEventLog.EventType.SHOW_REQUESTED:
+                return "SHOW_REQUESTED";
+            case AppMenuEventLog.EventType.PREPARED:
+                return "PREPARED";
+            case AppMenuEventLog.EventType.SHOWN:
+                return "SHOWN";
+            case AppMenuEventLog.EventType.FIRST_FRAME:
+                return "FIRST_FRAME";
+            case AppMenuEventLog.EventType.HIGHLIGHT_CHANGED:
+                return "HIGHLIGHT_CHANGED";
+            case AppMenuEventLog.EventType.AUTO_SCROLL_STARTED:
+                return "AUTO_SCROLL_STARTED";
+            case AppMenuEventLog.EventType.AUTO_SCROLL_STOPPED:
+                return "AUTO_SCROLL_STOPPED";
+            case AppMenuEventLog.EventType.CLICK_DISPATCHED:
+                return "CLICK_DISPATCHED";
+            case AppMenuEventLog.EventType.DISMISSED:
+                return "DISMISSED";
+            default:
+                return "UNKNOWN(" + type + ")";
+        }
+    }
+
+    /**
+     * Prints one event per line with its time relative to the first event, in milliseconds.
+     */
+    public static void print(@NonNull long[] events, @NonNull PrintWriter writer) {
+        int count = events.length / 2;
+        if (count == 0) {
+            writer.println("No App Menu events");
+            return;
+        }
+        long startNanos = getTimeNanos(events, 0);
+        for (int i = 0; i < count; i++) {
+            double timeMs = (double) (getTimeNanos(events, i) - startNanos) / NANOS_PER_MILLI;
+            writer.println(String.format(Locale.US, "%10.3f ms  %-20s %d",
+                    timeMs, getTypeName(getType(events, i)), getArgument(events, i)));
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 1) {
+            System.err.println("Usage: AppMenuEventLogDecoder <dump file>");
+            System.exit(1);
+        }
+        FileInputStream input = new FileInputStream(args[0]);
+        try {
+            PrintWriter writer = new PrintWriter(System.out);
+            print(decode(input), writer);
+            writer.flush();
+        } finally {
+            input.close();
+        }
+    }
+}
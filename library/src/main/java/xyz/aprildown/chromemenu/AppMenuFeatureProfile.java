@@ -0,0 +1,147 @@
+package xyz.aprildown.chromemenu;
+
+import androidx.annotation.NonNull;
+
+/**
+ * The effects and cache sizes used by the App Menu, usually chosen for the tier of the device by
+ * a {@link DeviceTierProvider}. Instances are immutable, use a {@link Builder} to create one.
+ */
+public final class AppMenuFeatureProfile {
+    private final boolean mWindowAnimationEnabled;
+    private final boolean mItemEnterAnimationEnabled;
+    private final boolean mFadingEdgeEnabled;
+    private final int mPulseFrameRate;
+    private final int mMaxCachedPages;
+    private final int mMaxCachedSubMenuLevels;
+
+    private AppMenuFeatureProfile(Builder builder) {
+        mWindowAnimationEnabled = builder.mWindowAnimationEnabled;
+        mItemEnterAnimationEnabled = builder.mItemEnterAnimationEnabled;
+        mFadingEdgeEnabled = builder.mFadingEdgeEnabled;
+        mPulseFrameRate = builder.mPulseFrameRate;
+        mMaxCachedPages = builder.mMaxCachedPages;
+        mMaxCachedSubMenuLevels = builder.mMaxCachedSubMenuLevels;
+    }
+
+    /**
+     * @return Whether the popup window slides in and out.
+     */
+    public boolean isWindowAnimationEnabled() {
+        return mWindowAnimationEnabled;
+    }
+
+    /**
+     * @return Whether the rows fade in one after another when the menu is shown.
+     */
+    public boolean isItemEnterAnimationEnabled() {
+        return mItemEnterAnimationEnabled;
+    }
+
+    /**
+     * @return Whether the edges of a scrollable menu fade out.
+     */
+    public boolean isFadingEdgeEnabled() {
+        return mFadingEdgeEnabled;
+    }
+
+    /**
+     * @return The frame rate of the pulse of highlighted items. 0 shows a still highlight.
+     */
+    public int getPulseFrameRate() {
+        return mPulseFrameRate;
+    }
+
+    /**
+     * @return The number of pages of each {@link PagedMenuSection} kept in memory.
+     */
+    public int getMaxCachedPages() {
+        return mMaxCachedPages;
+    }
+
+    /**
+     * @return The number of sub menu levels kept built while the menu is showing.
+     */
+    public int getMaxCachedSubMenuLevels() {
+        return mMaxCachedSubMenuLevels;
+    }
+
+    /**
+     * Creates {@link AppMenuFeatureProfile}s. A new builder enables every effect with the default
+     * cache sizes.
+     */
+    public static final class Builder {
+        private boolean mWindowAnimationEnabled = true;
+        private boolean mItemEnterAnimationEnabled = true;
+        private boolean mFadingEdgeEnabled = true;
+        private int mPulseFrameRate = 60;
+        private int mMaxCachedPages = 5;
+        private int mMaxCachedSubMenuLevels = 4;
+
+        public Builder() {
+        }
+
+        /**
+         * @param profile The profile to start from.
+         */
+        public Builder(@NonNull AppMenuFeatureProfile profile) {
+            mWindowAnimationEnabled = profile.mWindowAnimationEnabled;
+            mItemEnterAnimationEnabled = profile.mItemEnterAnimationEnabled;
+            mFadingEdgeEnabled = profile.mFadingEdgeEnabled;
+            mPulseFrameRate = profile.mPulseFrameRate;
+            mMaxCachedPages = profile.mMaxCachedPages;
+            mMaxCachedSubMenuLevels = profile.mMaxCachedSubMenuLevels;
+        }
+
+        @NonNull
+        public Builder setWindowAnimationEnabled(boolean enabled) {
+            mWindowAnimationEnabled = enabled;
+            return this;
+        }
+
+        @NonNull
+        public Builder setItemEnterAnimationEnabled(boolean enabled) {
+            mItemEnterAnimationEnabled = enabled;
+            return this;
+        }
+
+        @NonNull
+        public Builder setFadingEdgeEnabled(boolean enabled) {
+            mFadingEdgeEnabled = enabled;
+            return this;
+        }
+
+        /**
+         * @param framesPerSecond The frame rate of the pulse. 0 shows a still highlight.
+         */
+        @NonNull
+        public Builder setPulseFrameRate(int framesPerSecond) {
+            mPulseFrameRate = Math.max(0, framesPerSecond);
+            return this;
+        }
+
+        /**
+         * @param maxCachedPages The number of pages of each paged section kept in memory. At
+         *                       least two pages are always kept.
+         */
+        @NonNull
+        public Builder setMaxCachedPages(int maxCachedPages) {
+            mMaxCachedPages = maxCachedPages;
+            return this;
+        }
+
+        /**
+         * @param maxCachedSubMenuLevels The number of sub menu levels kept built. The levels that
+         *                               are open are always kept.
+         */
+        @NonNull
+        public Builder setMaxCachedSubMenuLevels(int maxCachedSubMenuLevels) {
+            mMaxCachedSubMenuLevels = maxCachedSubMenuLevels;
+            return this;
+        }
+
+        @NonNull
+        public AppMenuFeatureProfile build() {
+            return new AppMenuFeatureProfile(this);
+        }
+    }
+}
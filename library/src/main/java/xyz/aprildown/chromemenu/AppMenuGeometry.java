@@ -0,0 +1,157 @@
+package xyz.aprildown.chromemenu;
+
+/**
+ * The size and position math of the App Menu popup. It only works on plain numbers so it can be
+ * run and benchmarked without Android.
+ */
+final class AppMenuGeometry {
+    // Same values as android.view.Surface.ROTATION_*.
+    static final int ROTATION_0 = 0;
+    static final int ROTATION_90 = 1;
+    static final int ROTATION_180 = 2;
+    static final int ROTATION_270 = 3;
+
+    private static final float LAST_ITEM_SHOW_FRACTION = 0.5f;
+
+    private final int mItemRowHeight;
+    private final int mItemDividerHeight;
+    private final int mNegativeSoftwareVerticalOffset;
+    private final int mNegativeVerticalOffsetNotTopAnchored;
+
+    /**
+     * @param itemRowHeight                        Height of each menu row.
+     * @param itemDividerHeight                    Height of the divider between rows.
+     * @param negativeSoftwareVerticalOffset       How far the popup overlaps a software anchor.
+     * @param negativeVerticalOffsetNotTopAnchored How far the popup moves up when anchored at the
+     *                                             bottom.
+     */
+    AppMenuGeometry(int itemRowHeight, int itemDividerHeight, int negativeSoftwareVerticalOffset,
+                    int negativeVerticalOffsetNotTopAnchored) {
+        mItemRowHeight = itemRowHeight;
+        mItemDividerHeight = itemDividerHeight;
+        mNegativeSoftwareVerticalOffset = negativeSoftwareVerticalOffset;
+        mNegativeVerticalOffsetNotTopAnchored = negativeVerticalOffsetNotTopAnchored;
+    }
+
+    /**
+     * Computes the height of the popup. If not all rows fit, the last visible row is cut in half
+     * to hint that the list scrolls.
+     *
+     * @param numMenuItems        The number of rows.
+     * @param appTop              The top of the visible app frame on screen.
+     * @param appHeight           The height of the visible app frame.
+     * @param screenHeight        The height of the screen.
+     * @param anchorScreenY       The top of the anchor view on screen.
+     * @param anchorHeight        The height of the anchor view.
+     * @param paddingTop          The top padding of the popup background.
+     * @param paddingBottom       The bottom padding of the popup background.
+     * @param footerHeight        The height of the footer, 0 if there is none.
+     * @param headerHeight        The height of the headers, 0 if there is none.
+     * @param isByPermanentButton Whether the menu was opened by a hardware menu button.
+     * @return The height of the popup.
+     */
+    int computeMenuHeight(int numMenuItems, int appTop, int appHeight, int screenHeight,
+                          int anchorScreenY, int anchorHeight, int paddingTop, int paddingBottom,
+                          int footerHeight, int headerHeight, boolean isByPermanentButton) {
+        int anchorViewY = anchorScreenY - appTop;
+        int anchorViewImpactHeight = isByPermanentButton ? anchorHeight : 0;
+
+        // Set appHeight for abnormal anchorViewLocation.
+        if (anchorViewY > screenHeight) {
+            anchorViewY = appHeight;
+        }
+        int availableScreenSpace =
+                Math.max(anchorViewY, appHeight - anchorViewY - anchorViewImpactHeight);
+
+        availableScreenSpace -= (paddingBottom + footerHeight + headerHeight);
+        if (isByPermanentButton) availableScreenSpace -= paddingTop;
+
+        int numCanFit = availableScreenSpace / (mItemRowHeight + mItemDividerHeight);
+
+        // Fade out the last item if we cannot fit all items.
+        if (numCanFit < numMenuItems) {
+            int spaceForFullItems = numCanFit * (mItemRowHeight + mItemDividerHeight);
+            spaceForFullItems += footerHeight + headerHeight;
+
+            int spaceForPartialItem = (int) (LAST_ITEM_SHOW_FRACTION * mItemRowHeight);
+            // Determine which item needs hiding.
+            if (spaceForFullItems + spaceForPartialItem < availableScreenSpace) {
+                return spaceForFullItems + spaceForPartialItem + paddingTop + paddingBottom;
+            } else {
+                return spaceForFullItems - mItemRowHeight + spaceForPartialItem + paddingTop
+                        + paddingBottom;
+            }
+        } else {
+            int spaceForFullItems = numMenuItems * (mItemRowHeight + mItemDividerHeight);
+            spaceForFullItems += footerHeight + headerHeight;
+            return spaceForFullItems + paddingTop + paddingBottom;
+        }
+    }
+
+    /**
+     * Computes where the popup is shown in window coordinates.
+     *
+     * @param screenRotation      One of the ROTATION_* constants.
+     * @param appWidth            The width of the visible app frame.
+     * @param appBottom           The bottom of the visible app frame on screen.
+     * @param paddingBottom       The bottom padding of the popup background.
+     * @param anchorWindowX       The left of the anchor view in the window.
+     * @param anchorWindowY       The top of the anchor view in the window.
+     * @param anchorScreenY       The top of the anchor view on screen.
+     * @param anchorWidth         The width of the anchor view.
+     * @param popupWidth          The width of the popup.
+     * @param popupHeight         The height of the popup.
+     * @param isAnchorAtBottom    Whether the popup is aligned with the bottom of the anchor.
+     * @param isByPermanentButton Whether the menu was opened by a hardware menu button.
+     * @param isRtl               Whether the anchor is laid out right to left.
+     * @param outPosition         Receives the x and y of the popup.
+     */
+    void computePopupPosition(int screenRotation, int appWidth, int appBottom, int paddingBottom,
+                              int anchorWindowX, int anchorWindowY, int anchorScreenY,
+                              int anchorWidth, int popupWidth, int popupHeight,
+                              boolean isAnchorAtBottom, boolean isByPermanentButton,
+                              boolean isRtl, int[] outPosition) {
+        int offsetX = 0;
+        int offsetY;
+        // If we have a hardware menu button, locate the app menu closer to the estimated
+        // hardware menu button location.
+        if (isByPermanentButton) {
+            int horizontalOffset = -anchorWindowX;
+            switch (screenRotation) {
+                case ROTATION_0:
+                case ROTATION_180:
+                    horizontalOffset += (appWidth - popupWidth) / 2;
+                    break;
+                case ROTATION_90:
+                    horizontalOffset += appWidth - popupWidth;
+                    break;
+                case ROTATION_270:
+                    break;
+                default:
+                    throw new IllegalStateException("Unknown screenRotation: " + screenRotation);
+            }
+            offsetX = horizontalOffset;
+            // The menu is displayed above the anchored view, so shift the menu up by the bottom
+            // padding of the background.
+            offsetY = -paddingBottom;
+        } else {
+            offsetY = -mNegativeSoftwareVerticalOffset;
+
+            // If the anchor is at the bottom of the screen, align the popup with the bottom of the
+            // anchor. The anchor may not be fully visible, so (appBottom - anchorScreenY) is used
+            // to determine the visible bottom edge of the anchor view.
+            if (isAnchorAtBottom) {
+                offsetY += appBottom - anchorScreenY - popupHeight;
+                offsetY -= mNegativeVerticalOffsetNotTopAnchored;
+                offsetY += paddingBottom;
+            }
+
+            if (!isRtl) {
+                offsetX = anchorWidth - popupWidth;
+            }
+        }
+
+        outPosition[0] = anchorWindowX + offsetX;
+        outPosition[1] = anchorWindowY + offsetY;
+    }
+}
@@ -0,0 +1,98 @@
+package xyz.aprildown.chromemenu;
+
+import android.view.MotionEvent;
+import android.view.View;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import androidx.annotation.NonNull;
+
+/**
+ * Records the touch gestures on a menu button, to be replayed by the tests of the library as
+ * drag selection performance fixtures. Meant for dogfood builds: pass it to
+ * {@link AppMenuButtonHelper#setGestureRecorder(AppMenuGestureRecorder)} and save the gestures
+ * with {@link #writeTo(File)}.
+ * <p>
+ * Only the latest gestures are kept. Must be used on the UI thread.
+ */
+public final class AppMenuGestureRecorder {
+    private static final int DEFAULT_MAX_GESTURES = 20;
+
+    private final int mMaxGestures;
+    private final List<AppMenuGestureRecording.Gesture> mGestures = new ArrayList<>();
+    private AppMenuGestureRecording.Gesture mCurrentGesture;
+    private long mDownTime;
+    private float mDensity = 1f;
+
+    public AppMenuGestureRecorder() {
+        this(DEFAULT_MAX_GESTURES);
+    }
+
+    /**
+     * @param maxGestures How many of the latest gestures are kept.
+     */
+    public AppMenuGestureRecorder(int maxGestures) {
+        mMaxGestures = Math.max(1, maxGestures);
+    }
+
+    /**
+     * @param button The menu button receiving the event.
+     * @param event  A touch event in the coordinates of {@code button}.
+     */
+    void onTouchEvent(View button, MotionEvent event) {
+        int action = event.getActionMasked();
+        if (action == MotionEvent.ACTION_DOWN) {
+            mCurrentGesture = new AppMenuGestureRecording.Gesture();
+            mDownTime = event.getDownTime();
+            mDensity = button.getResources().getDisplayMetrics().density;
+        }
+        if (mCurrentGesture == null) return;
+
+        int historySize = event.getHistorySize();
+        mCurrentGesture.addEvent(action, historySize + 1);
+        for (int i = 0; i < historySize; i++) {
+            mCurrentGesture.addSample((int) (event.getHistoricalEventTime(i) - mDownTime),
+                    event.getHistoricalX(i), event.getHistoricalY(i));
+        }
+        mCurrentGesture.addSample(
+                (int) (event.getEventTime() - mDownTime), event.getX(), event.getY());
+
+        if (action == MotionEvent.ACTION_UP || action == MotionEvent.ACTION_CANCEL) {
+            if (mGestures.size() == mMaxGestures) mGestures.remove(0);
+            mGestures.add(mCurrentGesture);
+            mCurrentGesture = null;
+        }
+    }
+
+    /**
+     * @return The gestures finished so far.
+     */
+    @NonNull
+    public AppMenuGestureRecording getRecording() {
+        return new AppMenuGestureRecording(mDensity, mGestures);
+    }
+
+    /**
+     * Writes the gestures finished so far to {@code file}, see {@link AppMenuGestureRecording}.
+     */
+    public void writeTo(@NonNull File file) throws IOException {
+        FileOutputStream output = new FileOutputStream(file);
+        try {
+            getRecording().write(output);
+        } finally {
+            output.close();
+        }
+    }
+
+    /**
+     * Drops the gestures recorded so far.
+     */
+    public void clear() {
+        mGestures.clear();
+        mCurrentGesture = null;
+    }
+}
@@ -0,0 +1,213 @@
+package xyz.aprildown.chromemenu;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import androidx.annotation.NonNull;
+
+/**
+ * Touch gestures on a menu button, as recorded by {@link AppMenuGestureRecorder}, and their file
+ * format. Recordings are replayed by the tests of the library to catch drag selection getting
+ * slower.
+ * <p>
+ * A gesture is the touch events from a down to an up or cancel. Every event has one or more
+ * samples: the historical samples batched into it followed by its current position. Positions
+ * are in pixels relative to the menu button, times are in milliseconds since the down event.
+ * <p>
+ * The file is big-endian: the magic {@code "AMGR"}, a version, the display density, the number of
+ * gestures and then every gesture as its number of events followed, for every event, by the
+ * action, the number of samples and each sample as time, x and y.
+ */
+public final class AppMenuGestureRecording {
+    private static final int MAGIC = 0x414d4752;
+    private static final int VERSION = 1;
+
+    private final float mDensity;
+    private final List<Gesture> mGestures;
+
+    AppMenuGestureRecording(float density, List<Gesture> gestures) {
+        mDensity = density;
+        mGestures = Collections.unmodifiableList(new ArrayList<>(gestures));
+    }
+
+    /**
+     * @return The density of the display the gestures were recorded on.
+     */
+    public float getDensity() {
+        return mDensity;
+    }
+
+    public int getGestureCount() {
+        return mGestures.size();
+    }
+
+    @NonNull
+    public Gesture getGesture(int index) {
+        return mGestures.get(index);
+    }
+
+    /**
+     * Writes the gestures in the format read by {@link #read(InputStream)}. The stream isn't
+     * closed.
+     */
+    public void write(@NonNull OutputStream stream) throws IOException {
+        DataOutputStream output = new DataOutputStream(stream);
+        output.writeInt(MAGIC);
+        output.writeInt(VERSION);
+        output.writeFloat(mDensity);
+        output.writeInt(mGestures.size());
+        for (Gesture gesture : mGestures) {
+            output.writeInt(gesture.getEventCount());
+            for (int i = 0; i < gesture.getEventCount(); i++) {
+                output.writeByte(gesture.getAction(i));
+                int start = gesture.getSampleStart(i);
+                int count = gesture.getSampleCount(i);
+                output.writeShort(count);
+                for (int sample = start; sample < start + count; sample++) {
+                    output.writeInt(gesture.getSampleTimeMs(sample));
+                    output.writeFloat(gesture.getSampleX(sample));
+                    output.writeFloat(gesture.getSampleY(sample));
+                }
+            }
+        }
+        output.flush();
+    }
+
+    /**
+     * Reads gestures written by {@link #write(OutputStream)}. The stream isn't closed.
+     *
+     * @throws IOException If the stream isn't a gesture recording of a known version.
+     */
+    @NonNull
+    public static AppMenuGestureRecording read(@NonNull InputStream stream) throws IOException {
+        DataInputStream input = new DataInputStream(stream);
+        if (input.readInt() != MAGIC) throw new IOException("Not an App Menu gesture recording");
+        int version = input.readInt();
+        if (version != VERSION) throw new IOException("Unknown recording version " + version);
+        float density = input.readFloat();
+        int gestureCount = input.readInt();
+        if (gestureCount < 0) throw new IOException("Invalid gesture count " + gestureCount);
+
+        List<Gesture> gestures = new ArrayList<>(gestureCount);
+        for (int g = 0; g < gestureCount; g++) {
+            Gesture gesture = new Gesture();
+            int eventCount = input.readInt();
+            if (eventCount < 0) throw new IOException("Invalid event count " + eventCount);
+            for (int i = 0; i < eventCount; i++) {
+                int action = input.readByte();
+                int sampleCount = input.readShort();
+                if (sampleCount <= 0) throw new IOException("Invalid sample count " + sampleCount);
+                gesture.addEvent(action, sampleCount);
+                for (int sample = 0; sample < sampleCount; sample++) {
+                    gesture.addSample(input.readInt(), input.readFloat(), input.readFloat());
+                }
+            }
+            gestures.add(gesture);
+        }
+        return new AppMenuGestureRecording(density, gestures);
+    }
+
+    /**
+     * The events of one gesture, stored in arrays of primitives.
+     */
+    public static final class Gesture {
+        private static final int INITIAL_CAPACITY = 64;
+
+        private int mEventCount;
+        private int[] mActions = new int[INITIAL_CAPACITY];
+        private int[] mSampleStarts = new int[INITIAL_CAPACITY];
+        private int mSampleCount;
+        private int[] mSampleTimes = new int[INITIAL_CAPACITY];
+        private float[] mSampleXs = new float[INITIAL_CAPACITY];
+        private float[] mSampleYs = new float[INITIAL_CAPACITY];
+
+        Gesture() {
+        }
+
+        /**
+         * Starts an event whose samples are added next.
+         */
+        void addEvent(int action, int sampleCount) {
+            if (mEventCount == mActions.length) {
+                mActions = grow(mActions);
+                mSampleStarts = grow(mSampleStarts);
+            }
+            mActions[mEventCount] = action;
+            mSampleStarts[mEventCount] = mSampleCount;
+            mEventCount++;
+            ensureSampleCapacity(mSampleCount + sampleCount);
+        }
+
+        void addSample(int timeMs, float x, float y) {
+            ensureSampleCapacity(mSampleCount + 1);
+            mSampleTimes[mSampleCount] = timeMs;
+            mSampleXs[mSampleCount] = x;
+            mSampleYs[mSampleCount] = y;
+            mSampleCount++;
+        }
+
+        public int getEventCount() {
+            return mEventCount;
+        }
+
+        /**
+         * @return The masked action of an event, such as {@code MotionEvent.ACTION_MOVE}.
+         */
+        public int getAction(int event) {
+            return mActions[event];
+        }
+
+        /**
+         * @return The index of the first sample of an event.
+         */
+        public int getSampleStart(int event) {
+            return mSampleStarts[event];
+        }
+
+        /**
+         * @return The number of samples of an event. The last one is its current position.
+         */
+        public int getSampleCount(int event) {
+            int end = event + 1 < mEventCount ? mSampleStarts[event + 1] : mSampleCount;
+            return end - mSampleStarts[event];
+        }
+
+        public int getSampleTimeMs(int sample) {
+            return mSampleTimes[sample];
+        }
+
+        public float getSampleX(int sample) {
+            return mSampleXs[sample];
+        }
+
+        public float getSampleY(int sample) {
+            return mSampleYs[sample];
+        }
+
+        private void ensureSampleCapacity(int capacity) {
+            if (capacity <= mSampleTimes.length) return;
+            int newCapacity = Math.max(capacity, mSampleTimes.length * 2);
+            int[] times = new int[newCapacity];
+            System.arraycopy(mSampleTimes, 0, times, 0, mSampleCount);
+            mSampleTimes = times;
+            float[] xs = new float[newCapacity];
+            System.arraycopy(mSampleXs, 0, xs, 0, mSampleCount);
+            mSampleXs = xs;
+            float[] ys = new float[newCapacity];
+            System.arraycopy(mSampleYs, 0, ys, 0, mSampleCount);
+            mSampleYs = ys;
+        }
+
+        private static int[] grow(int[] array) {
+            int[] grown = new int[array.length * 2];
+            System.arraycopy(array, 0, grown, 0, array.length);
+            return grown;
+        }
+    }
+}
@@ -6,28 +6,42 @@ package xyz.aprildown.chromemenu;
 
 import android.annotation.SuppressLint;
 import android.app.Activity;
+import android.content.Context;
 import android.content.res.TypedArray;
-import android.graphics.Point;
 import android.graphics.Rect;
 import android.graphics.drawable.Drawable;
+import android.os.Build;
+import android.util.SparseArray;
+import android.util.SparseBooleanArray;
 import android.view.ContextThemeWrapper;
+import android.view.KeyEvent;
 import android.view.Menu;
 import android.view.MenuItem;
+import android.view.MotionEvent;
 import android.view.View;
+import android.widget.FrameLayout;
 import android.widget.PopupMenu;
 
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
 import java.util.ArrayList;
 
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
 /**
  * Object responsible for handling the creation, showing, hiding of the AppMenu and notifying the
  * AppMenuObservers about these actions.
  */
 public class AppMenuHandler {
     private final ArrayList<AppMenuObserver> mObservers;
+    private final ArrayList<AppMenuAnimationListener> mAnimationListeners;
     private final int mMenuResourceId;
     //    private final View mHardwareButtonMenuAnchor;
     private final AppMenuPropertiesDelegate mDelegate;
     private final Activity mActivity;
+    private final AppMenuAsyncPreparer mAsyncPreparer;
     private AppMenu mAppMenu;
     private AppMenuDragHelper mAppMenuDragHelper;
     private Menu mMenu;
@@ -37,6 +51,47 @@ public class AppMenuHandler {
      * opened.
      */
     private Integer mHighlightMenuId;
+    private boolean mSearchEnabled;
+    private boolean mOverlayEnabled;
+    private FrameLayout mOverlayHost;
+    private boolean mMenuFocusable = true;
+    private boolean mReducedOverdrawEnabled;
+    private @AppMenuEnterAnimationMode int mEnterAnimationMode = AppMenuEnterAnimationMode.STAGGER;
+    private AppMenuItemHoverListener mItemHoverListener;
+    private long mItemHoverDwellMs;
+    private final SparseArray<PagedMenuSection> mPagedSections = new SparseArray<>();
+    private final SparseBooleanArray mCascadingSubMenuIds = new SparseBooleanArray();
+    private DeviceTierProvider mDeviceTierProvider;
+    private final AdaptiveQualityController mQualityController = new AdaptiveQualityController();
+    private boolean mAdaptiveQualityEnabled = true;
+    private AppMenuAnimationPolicy mAnimationPolicy;
+    private final AppMenuMetricsRecorder mMetricsRecorder = new AppMenuMetricsRecorder();
+    private final AppMenuAnimationTracker mAnimationTracker = new AppMenuAnimationTracker(this);
+    private final DisplayGeometryCache mDisplayGeometry;
+    private final Runnable mOnAnimationPolicyChanged = new Runnable() {
+        @Override
+        public void run() {
+            if (mAppMenu != null) mAppMenu.updateFeatureProfile(getFeatureProfile());
+        }
+    };
+    /**
+     * Keeps the animation policy listening from the first show until the activity window goes
+     * away, instead of registering and unregistering its listeners on every show.
+     */
+    private boolean mIsAnimationPolicyListening;
+    private final View.OnAttachStateChangeListener mDecorAttachListener =
+            new View.OnAttachStateChangeListener() {
+                @Override
+                public void onViewAttachedToWindow(View v) {
+                }
+
+                @Override
+                public void onViewDetachedFromWindow(View v) {
+                    v.removeOnAttachStateChangeListener(this);
+                    mAnimationPolicy.stopListening();
+                    mIsAnimationPolicyListening = false;
+                }
+            };
 
     /**
      * Constructs an AppMenuHandler object.
@@ -45,13 +100,22 @@ public class AppMenuHandler {
      * @param delegate       Delegate used to check the desired AppMenu properties on show.
      * @param menuResourceId Resource Id that should be used as the source for the menu items.
      *                       It is assumed to have back_menu_id, forward_menu_id, bookmark_this_page_id.
+     *                       Pass 0 to start with an empty menu and add the items in
+     *                       {@link AppMenuPropertiesDelegate#prepareMenu(Menu)}.
      */
     public AppMenuHandler(Activity activity, AppMenuPropertiesDelegate delegate,
                           int menuResourceId) {
         mActivity = activity;
         mDelegate = delegate;
         mObservers = new ArrayList<>();
+        mAnimationListeners = new ArrayList<>();
         mMenuResourceId = menuResourceId;
+        mDeviceTierProvider = new DefaultDeviceTierProvider(activity);
+        mAnimationPolicy = new AppMenuAnimationPolicy(activity);
+        mDisplayGeometry = new DisplayGeometryCache(activity);
+        mAsyncPreparer = delegate instanceof AsyncAppMenuPropertiesDelegate
+                ? new AppMenuAsyncPreparer((AsyncAppMenuPropertiesDelegate) delegate, this)
+                : null;
 //    <!-- This empty view is used as the anchor for custom menu -->
 //    <View
 //        android:id="@+id/menu_anchor_stub"
@@ -69,8 +133,8 @@ public class AppMenuHandler {
      * changed.  This should be called if icons, titles, etc. are changing for a particular menu
      * item while the menu is open.
      *
-     * @param menuRowId The id of the menu item to change.  This must be a row id and not a child
-     *                  id.
+     * @param menuRowId The id of the menu item to change.  This can be a row id or the id of a
+     *                  child of a button row.
      */
     public void menuItemContentChanged(int menuRowId) {
         if (mAppMenu != null) mAppMenu.menuItemContentChanged(menuRowId);
@@ -91,6 +155,345 @@ public class AppMenuHandler {
         for (AppMenuObserver observer : mObservers) observer.onMenuHighlightChanged(highlighting);
     }
 
+    /**
+     * Adds a search field below the header that filters the menu items by title as the user types.
+     * Useful for menus with many items.
+     *
+     * @param searchEnabled Whether the search field should be shown the next time the menu opens.
+     */
+    public void setSearchEnabled(boolean searchEnabled) {
+        mSearchEnabled = searchEnabled;
+    }
+
+    /**
+     * Draws the menu inside the activity window instead of a {@link android.widget.PopupWindow}.
+     * Showing and dismissing the menu then doesn't add or remove a window, which is faster. The
+     * menu is placed, dismissed by touches outside it and handles keys the same way.
+     *
+     * @param overlayEnabled Whether the menu should be drawn inside the activity window the next
+     *                       time it opens.
+     */
+    public void setOverlayEnabled(boolean overlayEnabled) {
+        mOverlayEnabled = overlayEnabled;
+    }
+
+    /**
+     * Sets the layout the menu is added to when {@link #setOverlayEnabled(boolean)} is on. It
+     * should fill the activity window.
+     *
+     * @param host The layout to add the menu to, or {@code null} to use the decor view.
+     */
+    public void setOverlayHost(@Nullable FrameLayout host) {
+        mOverlayHost = host;
+    }
+
+    /**
+     * Sets whether the menu takes focus from the activity window while it's showing. Taking focus
+     * makes the activity lose and regain window focus on every show, which some screens, such as
+     * ones with WebViews, react to expensively.
+     * <p>
+     * A menu without focus is still dismissed by touches outside it, but the keys go to the
+     * activity, which should pass them to {@link #dispatchKeyEvent(KeyEvent)}. Outside the overlay
+     * mode the touch that dismisses the menu reaches the activity too, so it should also pass its
+     * touches to {@link #dispatchTouchEvent(MotionEvent)}. The menu always takes focus while the
+     * search field is enabled.
+     *
+     * @param focusable Whether the menu should take focus the next time it opens. Defaults to
+     *                  {@code true}.
+     */
+    public void setMenuFocusable(boolean focusable) {
+        mMenuFocusable = focusable;
+    }
+
+    boolean isMenuFocusable() {
+        return mMenuFocusable;
+    }
+
+    /**
+     * Draws the menu with fewer overlapping layers. The background becomes a rounded shape with a
+     * shadow from elevation instead of a nine-patch with a drawn shadow, and rows only paint a
+     * background while pressed or focused, without a ripple. Below Android L, which has no
+     * elevation, the menu keeps the nine-patch background.
+     *
+     * @param enabled Whether the menu should use fewer layers the next time it opens.
+     */
+    public void setReducedOverdrawEnabled(boolean enabled) {
+        mReducedOverdrawEnabled = enabled;
+    }
+
+    /**
+     * Sets how the menu animates in. {@link AppMenuEnterAnimationMode#REVEAL} is a cheap
+     * alternative to the default {@link AppMenuEnterAnimationMode#STAGGER} for devices that can't
+     * afford an animation per row, and is used even if the feature profile turns item animations
+     * off. Only {@link AppMenuEnterAnimationMode#STAGGER} also runs the window animation, when the
+     * feature profile allows it.
+     *
+     * @param mode How the menu should animate in the next time it opens.
+     */
+    public void setEnterAnimationMode(@AppMenuEnterAnimationMode int mode) {
+        mEnterAnimationMode = mode;
+    }
+
+    @AppMenuEnterAnimationMode
+    int getEnterAnimationMode() {
+        return mEnterAnimationMode;
+    }
+
+    /**
+     * Sets a listener that is told which item the finger rests on while dragging through the
+     * menu, so the app can start its work before the item is released. Each item is reported at
+     * most once per menu session.
+     *
+     * @param listener The listener, or {@code null} to remove it.
+     * @param dwellMs  How long, in milliseconds, an item has to stay under the finger to be
+     *                 reported.
+     */
+    public void setItemHoverListener(@Nullable AppMenuItemHoverListener listener, long dwellMs) {
+        mItemHoverListener = listener;
+        mItemHoverDwellMs = Math.max(dwellMs, 0);
+    }
+
+    /**
+     * @return How long an item has to stay under the finger to be reported to the
+     * {@link AppMenuItemHoverListener}, or -1 if there is no listener.
+     */
+    long getItemHoverDwellMs() {
+        return mItemHoverListener == null ? -1 : mItemHoverDwellMs;
+    }
+
+    void onMenuItemHovered(MenuItem item, long dwellMs) {
+        if (mItemHoverListener != null) mItemHoverListener.onMenuItemHovered(item, dwellMs);
+    }
+
+    boolean isReducedOverdrawEnabled() {
+        return mReducedOverdrawEnabled
+                && Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP;
+    }
+
+    /**
+     * Lets the menu handle a key event of the activity, such as the menu and back keys dismissing
+     * it. Only needed when the menu is not focusable, see {@link #setMenuFocusable(boolean)}.
+     * Call it from {@link Activity#dispatchKeyEvent(KeyEvent)}.
+     *
+     * @param event The key event received by the activity.
+     * @return Whether the menu consumed the event.
+     */
+    public boolean dispatchKeyEvent(KeyEvent event) {
+        return mAppMenu != null && mAppMenu.onHostKeyEvent(event);
+    }
+
+    /**
+     * Lets the menu consume a touch of the activity outside it. Only needed when the menu is not
+     * focusable and not in overlay mode, see {@link #setMenuFocusable(boolean)}: its popup window
+     * then isn't touch modal, and the touch that dismisses it would also reach the view below.
+     * Call it from {@link Activity#dispatchTouchEvent(MotionEvent)} and return early if it
+     * returns {@code true}.
+     *
+     * @param event The touch event received by the activity.
+     * @return Whether the menu consumed the event.
+     */
+    public boolean dispatchTouchEvent(MotionEvent event) {
+        return mAppMenu != null && mAppMenu.onHostTouchEvent(event);
+    }
+
+    /**
+     * Replaces a menu item with a paged section. The rows of the section are loaded page by page
+     * while the menu is showing instead of being added to the menu in
+     * {@link AppMenuPropertiesDelegate#prepareMenu}.
+     *
+     * @param anchorItemId The id of the top level item replaced by the section. The section is
+     *                     only shown while this item is visible.
+     * @param section      The section to show.
+     */
+    public void addPagedSection(int anchorItemId, PagedMenuSection section) {
+        mPagedSections.put(anchorItemId, section);
+    }
+
+    /**
+     * Removes a paged section added by {@link #addPagedSection(int, PagedMenuSection)}.
+     *
+     * @param anchorItemId The id of the item replaced by the section.
+     */
+    public void removePagedSection(int anchorItemId) {
+        mPagedSections.remove(anchorItemId);
+    }
+
+    /**
+     * Notifies the menu that the number of rows of a paged section has changed. This should be
+     * called if the section changes while the menu is open.
+     *
+     * @param anchorItemId The id of the item replaced by the section.
+     */
+    public void pagedSectionChanged(int anchorItemId) {
+        if (mAppMenu != null && mPagedSections.get(anchorItemId) != null) {
+            mAppMenu.refreshMenuItems();
+        }
+    }
+
+    SparseArray<PagedMenuSection> getPagedSections() {
+        return mPagedSections;
+    }
+
+    /**
+     * Shows the sub menu of an item as a separate level of the menu, opened by clicking the item,
+     * instead of a row of buttons. Sub menus with fewer than two or more than five items always
+     * open as a separate level. Levels are only built the first time they are opened.
+     *
+     * @param itemId The id of an item with a sub menu.
+     */
+    public void addCascadingSubMenu(int itemId) {
+        mCascadingSubMenuIds.put(itemId, true);
+    }
+
+    /**
+     * Shows the sub menu of an item registered with {@link #addCascadingSubMenu(int)} as a row of
+     * buttons again.
+     *
+     * @param itemId The id of an item with a sub menu.
+     */
+    public void removeCascadingSubMenu(int itemId) {
+        mCascadingSubMenuIds.delete(itemId);
+    }
+
+    boolean isCascadingSubMenu(int itemId) {
+        return mCascadingSubMenuIds.get(itemId);
+    }
+
+    /**
+     * Replaces the {@link DefaultDeviceTierProvider} used to decide which effects the menu can
+     * afford. Takes effect the next time the menu is shown.
+     *
+     * @param provider The provider to use.
+     */
+    public void setDeviceTierProvider(@NonNull DeviceTierProvider provider) {
+        mDeviceTierProvider = provider;
+    }
+
+    /**
+     * Replaces the policy that reduces the effects of the menu while battery saver is on or the
+     * device is hot. Takes effect the next time the menu is shown.
+     *
+     * @param policy The policy to use.
+     */
+    public void setAnimationPolicy(@NonNull AppMenuAnimationPolicy policy) {
+        mAnimationPolicy.stopListening();
+        mAnimationPolicy = policy;
+        if (mIsAnimationPolicyListening) mAnimationPolicy.startListening(mOnAnimationPolicyChanged);
+    }
+
+    /**
+     * Lets the menu turn off its effects one by one after it drops frames, and turn them back on
+     * after it runs smoothly for a while. Enabled by default.
+     *
+     * @param enabled Whether the effects should adapt to the observed frame drops. Disabling it
+     *                goes back to {@link AppMenuQualityLevel#FULL}.
+     */
+    public void setAdaptiveQualityEnabled(boolean enabled) {
+        mAdaptiveQualityEnabled = enabled;
+        if (!enabled) mQualityController.reset();
+    }
+
+    /**
+     * @return How far the menu has stepped down its effects after dropping frames.
+     */
+    @AppMenuQualityLevel
+    public int getQualityLevel() {
+        return mQualityController.getLevel();
+    }
+
+    /**
+     * Adds a listener that receives the timings of every menu session.
+     *
+     * @param listener The listener to add.
+     */
+    public void addMetricsListener(AppMenuMetricsListener listener) {
+        mMetricsRecorder.addListener(listener);
+    }
+
+    /**
+     * Removes a listener added by {@link #addMetricsListener(AppMenuMetricsListener)}.
+     *
+     * @param listener The listener to remove.
+     */
+    public void removeMetricsListener(AppMenuMetricsListener listener) {
+        mMetricsRecorder.removeListener(listener);
+    }
+
+    /**
+     * Writes how many background layers are painted under each visible row of the showing menu to
+     * {@code writer}, to check the overdraw of the menu, for example with
+     * {@link #setReducedOverdrawEnabled(boolean)}. Writes nothing if the menu isn't showing.
+     *
+     * @param writer Where to write the layer counts as text.
+     */
+    public void dumpOverdrawAudit(PrintWriter writer) {
+        if (isAppMenuShowing()) {
+            AppMenuOverdrawAudit.dump(
+                    mAppMenu.getPopup().getBackground(), mAppMenu.getListView(), writer);
+        }
+    }
+
+    /**
+     * Writes the recent events of the menu, such as when it was requested, shown and dismissed
+     * and which rows were highlighted, to {@code writer}. Can be called from any thread.
+     *
+     * @param writer Where to write the events as text.
+     */
+    public void dumpEventLog(PrintWriter writer) {
+        mMetricsRecorder.getEventLog().dump(writer);
+    }
+
+    /**
+     * Writes the recent events of the menu to a binary file, to be decoded later by
+     * {@link AppMenuEventLogDecoder}. Can be called from any thread.
+     *
+     * @param file The file to write.
+     * @throws IOException If the file can't be written.
+     */
+    public void dumpEventLog(File file) throws IOException {
+        mMetricsRecorder.getEventLog().dump(file);
+    }
+
+    AppMenuMetricsRecorder getMetricsRecorder() {
+        return mMetricsRecorder;
+    }
+
+    /**
+     * @param context The themed context of the menu.
+     * @return A new window to show the menu in.
+     */
+    AppMenuWindow createMenuWindow(Context context) {
+        if (!mOverlayEnabled) return new PopupAppMenuWindow(context);
+        FrameLayout host = mOverlayHost != null
+                ? mOverlayHost : (FrameLayout) mActivity.getWindow().getDecorView();
+        return new OverlayAppMenuWindow(context, host);
+    }
+
+    AppMenuAnimationTracker getAnimationTracker() {
+        return mAnimationTracker;
+    }
+
+    /**
+     * @return Whether the menu is running its enter or exit animation. Both the popup window
+     * animation and the animation of the menu items count.
+     */
+    public boolean isMenuAnimating() {
+        return mAnimationTracker.isAnimating();
+    }
+
+    AppMenuFeatureProfile getFeatureProfile() {
+        AppMenuFeatureProfile profile =
+                mDeviceTierProvider.getFeatureProfile(mDeviceTierProvider.getDeviceTier());
+        return mQualityController.apply(mAnimationPolicy.apply(profile));
+    }
+
+    /**
+     * Called by AppMenu when a sub menu level has been opened or closed.
+     */
+    void onMenuLevelChanged() {
+        if (mAppMenuDragHelper != null) mAppMenuDragHelper.onMenuLevelChanged();
+    }
+
     /**
      * Show the app menu.
      *
@@ -102,16 +505,29 @@ public class AppMenuHandler {
      *                       anchorView is null, this must be false since we no longer support
      *                       hardware menu button dragging.
      * @param showFromBottom Whether the menu should be shown from the bottom up.
+     * @param inputTime      The {@link android.os.SystemClock#uptimeMillis()} time of the input
+     *                       that requested the menu.
      * @return True, if the menu is shown, false, if menu is not shown, example
      * reasons: the menu is not yet available to be shown, or the menu is
      * already showing.
      */
+    boolean showAppMenu(View anchorView, boolean startDragging, boolean showFromBottom,
+                        long inputTime) {
+        AppMenuTrace.begin(AppMenuTrace.SHOW_APP_MENU);
+        try {
+            return showAppMenuInternal(anchorView, startDragging, showFromBottom, inputTime);
+        } finally {
+            AppMenuTrace.end();
+        }
+    }
+
     // TODO(crbug.com/635567): Fix this properly.
     @SuppressLint("ResourceType")
-    boolean showAppMenu(View anchorView, boolean startDragging, boolean showFromBottom) {
+    private boolean showAppMenuInternal(
+            View anchorView, boolean startDragging, boolean showFromBottom, long inputTime) {
         if (!mDelegate.shouldShowAppMenu() || isAppMenuShowing()) return false;
+        mMetricsRecorder.onShowRequested(inputTime);
 
-        int rotation = mActivity.getWindowManager().getDefaultDisplay().getRotation();
 //        if (anchorView == null) {
 //            // This fixes the bug where the bottom of the menu starts at the top of
 //            // the keyboard, instead of overlapping the keyboard as it should.
@@ -128,13 +544,22 @@ public class AppMenuHandler {
         if (mMenu == null) {
             // Use a PopupMenu to create the Menu object. Note this is not the same as the
             // AppMenu (mAppMenu) created below.
+            AppMenuTrace.begin(AppMenuTrace.INFLATE_MENU);
             PopupMenu tempMenu = new PopupMenu(mActivity, anchorView);
-            tempMenu.inflate(mMenuResourceId);
+            if (mMenuResourceId != 0) tempMenu.inflate(mMenuResourceId);
             mMenu = tempMenu.getMenu();
+            AppMenuTrace.end();
         }
+        AppMenuTrace.begin(AppMenuTrace.PREPARE_MENU);
         mDelegate.prepareMenu(mMenu);
+        if (mAsyncPreparer != null) mAsyncPreparer.prepare(mMenu);
+        AppMenuTrace.end();
+        mMetricsRecorder.onPrepared();
 
-        ContextThemeWrapper wrapper = new ContextThemeWrapper(mActivity, R.style.OverflowMenuTheme);
+        AppMenuTrace.begin(AppMenuTrace.OBTAIN_STYLED_ATTRIBUTES);
+        ContextThemeWrapper wrapper = new ContextThemeWrapper(mActivity,
+                isReducedOverdrawEnabled()
+                        ? R.style.OverflowMenuTheme_ReducedOverdraw : R.style.OverflowMenuTheme);
 
         if (mAppMenu == null) {
             TypedArray a = wrapper.obtainStyledAttributes(new int[]
@@ -145,22 +570,15 @@ public class AppMenuHandler {
             a.recycle();
             mAppMenu = new AppMenu(
                     mMenu, itemRowHeight, itemDividerHeight, this, mActivity.getResources());
-            mAppMenuDragHelper = new AppMenuDragHelper(mActivity, mAppMenu, itemRowHeight);
+            mAppMenuDragHelper = new AppMenuDragHelper(
+                    mActivity, mAppMenu, itemRowHeight, mMetricsRecorder);
         }
+        AppMenuTrace.end();
 
+        startListeningToAnimationPolicy();
         // Get the height and width of the display.
-        Rect appRect = new Rect();
-        mActivity.getWindow().getDecorView().getWindowVisibleDisplayFrame(appRect);
-
-        // Use full size of window for abnormal appRect.
-        if (appRect.left < 0 && appRect.top < 0) {
-            appRect.left = 0;
-            appRect.top = 0;
-            appRect.right = mActivity.getWindow().getDecorView().getWidth();
-            appRect.bottom = mActivity.getWindow().getDecorView().getHeight();
-        }
-        Point pt = new Point();
-        mActivity.getWindowManager().getDefaultDisplay().getSize(pt);
+        mDisplayGeometry.ensureUpToDate();
+        Rect appRect = mDisplayGeometry.getVisibleDisplayFrame();
 
         int footerResourceId = 0;
         if (mDelegate.shouldShowFooter(appRect.height())) {
@@ -170,9 +588,14 @@ public class AppMenuHandler {
         if (mDelegate.shouldShowHeader(appRect.height())) {
             headerResourceId = mDelegate.getHeaderResourceId();
         }
-        mAppMenu.show(wrapper, anchorView, rotation, appRect, pt.y,
-                footerResourceId, headerResourceId, mHighlightMenuId, showFromBottom);
+        mAppMenu.show(wrapper, anchorView, mDisplayGeometry.getRotation(), appRect,
+                mDisplayGeometry.getDisplayHeight(), footerResourceId, headerResourceId,
+                mHighlightMenuId, showFromBottom, mSearchEnabled);
+        mMetricsRecorder.onShown(mAppMenu.getListView(), mAppMenu.getListView().getCount());
         mAppMenuDragHelper.onShow(startDragging);
+        if (mAdaptiveQualityEnabled) {
+            mQualityController.onMenuShown(mDisplayGeometry.getRefreshRate(), startDragging);
+        }
         setMenuHighlight(null);
         /*RecordUserAction.record("MobileMenuShow");*/
         return true;
@@ -180,6 +603,21 @@ public class AppMenuHandler {
 
     void appMenuDismissed() {
         mAppMenuDragHelper.finishDragging();
+        if (mAdaptiveQualityEnabled) mQualityController.onMenuDismissed();
+        mMetricsRecorder.onDismissed();
+    }
+
+    /**
+     * Starts the animation policy listening on the first show, so {@link #getFeatureProfile()}
+     * reads its cached state instead of the power manager.
+     */
+    private void startListeningToAnimationPolicy() {
+        if (mIsAnimationPolicyListening) return;
+        View decorView = mActivity.getWindow().getDecorView();
+        if (decorView.getWindowToken() == null) return;
+        mIsAnimationPolicyListening = true;
+        mAnimationPolicy.startListening(mOnAnimationPolicyChanged);
+        decorView.addOnAttachStateChangeListener(mDecorAttachListener);
     }
 
     /**
@@ -203,7 +641,7 @@ public class AppMenuHandler {
     /**
      * Requests to hide the App Menu.
      */
-    void hideAppMenu() {
+    public void hideAppMenu() {
         if (mAppMenu != null && mAppMenu.isShowing()) mAppMenu.dismiss();
     }
 
@@ -225,7 +663,26 @@ public class AppMenuHandler {
         mObservers.remove(observer);
     }
 
+    /**
+     * Adds a listener that is told when the App Menu starts and stops animating.
+     *
+     * @param listener Listener that should be notified about App Menu animations.
+     */
+    public void addAnimationListener(AppMenuAnimationListener listener) {
+        mAnimationListeners.add(listener);
+    }
+
+    /**
+     * Removes the animation listener from the App Menu.
+     *
+     * @param listener Listener that should no longer be notified about App Menu animations.
+     */
+    public void removeAnimationListener(AppMenuAnimationListener listener) {
+        mAnimationListeners.remove(listener);
+    }
+
     void onOptionsItemSelected(MenuItem item) {
+        mMetricsRecorder.onItemDispatched(item.getItemId());
         mDelegate.onMenuItemClicked(item);
     }
 
@@ -240,6 +697,57 @@ public class AppMenuHandler {
         }
     }
 
+    /**
+     * Called by AppMenuAnimationTracker when the menu starts to animate in.
+     */
+    void onMenuEnterAnimationStarted(@AppMenuEnterAnimationMode int mode) {
+        for (int i = 0; i < mAnimationListeners.size(); ++i) {
+            mAnimationListeners.get(i).onMenuEnterAnimationStarted(mode);
+        }
+    }
+
+    /**
+     * Called by AppMenuAnimationTracker when the menu has finished animating in.
+     */
+    void onMenuEnterAnimationFinished() {
+        for (int i = 0; i < mAnimationListeners.size(); ++i) {
+            mAnimationListeners.get(i).onMenuEnterAnimationFinished();
+        }
+    }
+
+    /**
+     * Called by AppMenuAnimationTracker when the menu has finished animating out.
+     */
+    void onMenuExitAnimationFinished() {
+        for (int i = 0; i < mAnimationListeners.size(); ++i) {
+            mAnimationListeners.get(i).onMenuExitAnimationFinished();
+        }
+    }
+
+    /**
+     * @param itemId The id of a menu item or of a child of a button row.
+     * @return Whether the item is still waiting for the result of
+     * {@link AsyncAppMenuPropertiesDelegate#prepareMenuAsync}.
+     */
+    boolean isMenuItemPending(int itemId) {
+        return mAsyncPreparer != null && mAsyncPreparer.isPending(itemId);
+    }
+
+    /**
+     * Called by AppMenuAsyncPreparer when a pending menu item has been updated or has timed out.
+     *
+     * @param itemId            The id of the updated item.
+     * @param visibilityChanged Whether the update showed or hid the item.
+     */
+    void onMenuItemPrepared(int itemId, boolean visibilityChanged) {
+        if (mAppMenu == null) return;
+        if (visibilityChanged) {
+            mAppMenu.refreshMenuItems();
+        } else {
+            mAppMenu.menuItemContentChanged(itemId);
+        }
+    }
+
     /**
      * A notification that the header view has been inflated.
      *
@@ -0,0 +1,67 @@
+package xyz.aprildown.chromemenu;
+
+import androidx.annotation.Nullable;
+import androidx.test.espresso.IdlingResource;
+
+/**
+ * An Espresso {@link IdlingResource} that is busy while the menu of an {@link AppMenuHandler} is
+ * animating in or out, so tests can wait for the animations instead of sleeping.
+ * <p>
+ * The library only compiles against espresso-idling-resource, so this class can only be used
+ * where Espresso is on the classpath, such as instrumentation tests.
+ */
+public class AppMenuIdlingResource implements IdlingResource, AppMenuAnimationListener {
+    private final AppMenuHandler mHandler;
+    @Nullable
+    private volatile ResourceCallback mCallback;
+
+    /**
+     * Creates the resource and starts listening to the animations of {@code handler}. Call
+     * {@link #release()} once the resource is unregistered.
+     */
+    public AppMenuIdlingResource(AppMenuHandler handler) {
+        mHandler = handler;
+        mHandler.addAnimationListener(this);
+    }
+
+    /**
+     * Stops listening to the handler.
+     */
+    public void release() {
+        mHandler.removeAnimationListener(this);
+    }
+
+    @Override
+    public String getName() {
+        return AppMenuIdlingResource.class.getName() + "@" + System.identityHashCode(mHandler);
+    }
+
+    @Override
+    public boolean isIdleNow() {
+        return !mHandler.isMenuAnimating();
+    }
+
+    @Override
+    public void registerIdleTransitionCallback(ResourceCallback callback) {
+        mCallback = callback;
+    }
+
+    @Override
+    public void onMenuEnterAnimationStarted(int mode) {
+    }
+
+    @Override
+    public void onMenuEnterAnimationFinished() {
+        notifyIfIdle();
+    }
+
+    @Override
+    public void onMenuExitAnimationFinished() {
+        notifyIfIdle();
+    }
+
+    private void notifyIfIdle() {
+        ResourceCallback callback = mCallback;
+        if (callback != null && isIdleNow()) callback.onTransitionToIdle();
+    }
+}
@@ -0,0 +1,22 @@
+package xyz.aprildown.chromemenu;
+
+import android.view.MenuItem;
+
+import androidx.annotation.NonNull;
+
+/**
+ * Learns which item the finger rests on while dragging through the App Menu, before it's
+ * released. This lets the app start the work of an item, like loading a screen, before
+ * {@link AppMenuPropertiesDelegate#onMenuItemClicked(MenuItem)}. Register it with
+ * {@link AppMenuHandler#setItemHoverListener(AppMenuItemHoverListener, long)}.
+ */
+public interface AppMenuItemHoverListener {
+    /**
+     * Called on the UI thread once per item and menu session, when an enabled item has stayed
+     * under the finger for the dwell time. The item may still not be selected.
+     *
+     * @param item    The item under the finger.
+     * @param dwellMs How long, in milliseconds, the item has been under the finger.
+     */
+    void onMenuItemHovered(@NonNull MenuItem item, long dwellMs);
+}
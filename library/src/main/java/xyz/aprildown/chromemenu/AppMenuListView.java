@@ -0,0 +1,65 @@
+package xyz.aprildown.chromemenu;
+
+import android.content.Context;
+import android.graphics.Canvas;
+import android.graphics.drawable.GradientDrawable;
+import android.util.AttributeSet;
+import android.widget.ListView;
+
+/**
+ * The list of the menu. Instead of the framework fading edges, which draw the whole list into an
+ * offscreen layer on every frame it can scroll, it draws gradients of the menu background color
+ * over its top and bottom edges while it can scroll towards them.
+ */
+class AppMenuListView extends ListView {
+    private GradientDrawable mTopEdge;
+    private GradientDrawable mBottomEdge;
+    private int mEdgeLength;
+
+    public AppMenuListView(Context context) {
+        super(context);
+    }
+
+    public AppMenuListView(Context context, AttributeSet attrs) {
+        super(context, attrs);
+    }
+
+    public AppMenuListView(Context context, AttributeSet attrs, int defStyle) {
+        super(context, attrs, defStyle);
+    }
+
+    /**
+     * @param length The height of the gradients over the edges, or 0 to draw none.
+     */
+    void setEdgeGradientLength(int length) {
+        if (length == mEdgeLength) return;
+        mEdgeLength = length;
+        if (length > 0 && mTopEdge == null) {
+            int color =
+                    ApiCompatibilityUtils.getColor(getResources(), R.color.menu_background_color);
+            int[] colors = {color, color & 0x00FFFFFF};
+            mTopEdge = new GradientDrawable(GradientDrawable.Orientation.TOP_BOTTOM, colors);
+            mBottomEdge = new GradientDrawable(GradientDrawable.Orientation.BOTTOM_TOP, colors);
+        }
+        invalidate();
+    }
+
+    @Override
+    protected void dispatchDraw(Canvas canvas) {
+        super.dispatchDraw(canvas);
+        if (mEdgeLength <= 0) return;
+
+        int left = getPaddingLeft();
+        int right = getWidth() - getPaddingRight();
+        if (canScrollVertically(-1)) {
+            int top = getPaddingTop();
+            mTopEdge.setBounds(left, top, right, top + mEdgeLength);
+            mTopEdge.draw(canvas);
+        }
+        if (canScrollVertically(1)) {
+            int bottom = getHeight() - getPaddingBottom();
+            mBottomEdge.setBounds(left, bottom - mEdgeLength, right, bottom);
+            mBottomEdge.draw(canvas);
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package xyz.aprildown.chromemenu;
+
+import androidx.annotation.NonNull;
+
+/**
+ * Receives the timings of every App Menu session, from the input that opened the menu to its
+ * dismissal. Register it with {@link AppMenuHandler#addMetricsListener(AppMenuMetricsListener)}.
+ */
+public interface AppMenuMetricsListener {
+    /**
+     * Called on the UI thread shortly after the menu is dismissed, and after the selected item,
+     * if any, has been dispatched.
+     *
+     * @param metrics The timings of the session. The object is reused by the next session, so
+     *                copy what needs to be kept before returning.
+     */
+    void onMenuSessionFinished(@NonNull AppMenuSessionMetrics metrics);
+}
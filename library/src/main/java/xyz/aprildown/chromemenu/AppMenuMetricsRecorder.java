@@ -0,0 +1,234 @@
+package xyz.aprildown.chromemenu;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.view.Choreographer;
+import android.view.View;
+import android.view.ViewTreeObserver;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Fills the {@link AppMenuSessionMetrics} of an {@link AppMenuHandler} as the menu is used and
+ * reports them when the session ends. Nothing is recorded while no listener is registered. Every
+ * callback object is allocated up front so recording doesn't allocate on the UI thread.
+ * <p>
+ * The milestones of every session are also written to an {@link AppMenuEventLog}, whether a
+ * listener is registered or not.
+ */
+class AppMenuMetricsRecorder {
+    private final List<AppMenuMetricsListener> mListeners = new ArrayList<>();
+    private final AppMenuSessionMetrics mMetrics = new AppMenuSessionMetrics();
+    private final Handler mUiHandler = new Handler(Looper.getMainLooper());
+    private final AppMenuEventLog mEventLog = new AppMenuEventLog();
+
+    private boolean mRecording;
+    private long mShowRequestTime;
+    private long mShownTime;
+    private long mDragStartTime;
+    private long mSelectionTime;
+    private long mLastEnterFrameTimeNanos;
+    private boolean mEnterAnimationRunning;
+    /**
+     * Whether the report of a dismissed session is posted and hasn't run yet.
+     */
+    private boolean mReportPending;
+    private View mFirstFrameView;
+
+    private final ViewTreeObserver.OnPreDrawListener mFirstFrameListener =
+            new ViewTreeObserver.OnPreDrawListener() {
+                @Override
+                public boolean onPreDraw() {
+                    if (mFirstFrameView != null) {
+                        mFirstFrameView.getViewTreeObserver().removeOnPreDrawListener(this);
+                        mFirstFrameView = null;
+                    }
+                    mEventLog.log(AppMenuEventLog.EventType.FIRST_FRAME, 0);
+                    if (mRecording) {
+                        mMetrics.setShownToFirstFrameMs(SystemClock.uptimeMillis() - mShownTime);
+                    }
+                    return true;
+                }
+            };
+    private final Choreographer.FrameCallback mEnterFrameCallback =
+            new Choreographer.FrameCallback() {
+                @Override
+                public void doFrame(long frameTimeNanos) {
+                    if (!mEnterAnimationRunning) return;
+                    if (mLastEnterFrameTimeNanos != 0) {
+                        mMetrics.addEnterAnimationFrameTime(
+                                frameTimeNanos - mLastEnterFrameTimeNanos);
+                    }
+                    mLastEnterFrameTimeNanos = frameTimeNanos;
+                    Choreographer.getInstance().postFrameCallback(this);
+                }
+            };
+    /**
+     * The session is reported after the dismissal has finished, so that the dispatch of the
+     * selected item, which happens right after the dismissal, is part of it.
+     */
+    private final Runnable mReportRunnable = new Runnable() {
+        @Override
+        public void run() {
+            mReportPending = false;
+            report();
+        }
+    };
+
+    void addListener(AppMenuMetricsListener listener) {
+        if (!mListeners.contains(listener)) mListeners.add(listener);
+    }
+
+    void removeListener(AppMenuMetricsListener listener) {
+        mListeners.remove(listener);
+    }
+
+    AppMenuEventLog getEventLog() {
+        return mEventLog;
+    }
+
+    /**
+     * Starts a new session.
+     *
+     * @param inputTime The {@link SystemClock#uptimeMillis()} time of the input that requested
+     *                  the menu.
+     */
+    void onShowRequested(long inputTime) {
+        mEventLog.log(AppMenuEventLog.EventType.SHOW_REQUESTED, inputTime);
+        if (mReportPending) {
+            // The menu reopened before the previous session was reported, deliver it before its
+            // metrics are reset.
+            mUiHandler.removeCallbacks(mReportRunnable);
+            mReportPending = false;
+            report();
+        }
+        stopEnterAnimationFrames();
+        mRecording = !mListeners.isEmpty();
+        if (!mRecording) return;
+
+        mMetrics.reset();
+        mShowRequestTime = inputTime;
+        mDragStartTime = 0;
+        mSelectionTime = 0;
+    }
+
+    void onPrepared() {
+        mEventLog.log(AppMenuEventLog.EventType.PREPARED, 0);
+    }
+
+    /**
+     * @param contentView A view of the popup, used to detect its first frame.
+     * @param rowCount    The number of rows in the menu.
+     */
+    void onShown(View contentView, int rowCount) {
+        mEventLog.log(AppMenuEventLog.EventType.SHOWN, rowCount);
+        mFirstFrameView = contentView;
+        contentView.getViewTreeObserver().addOnPreDrawListener(mFirstFrameListener);
+
+        if (!mRecording) return;
+        mShownTime = SystemClock.uptimeMillis();
+        mMetrics.setInputToShownMs(mShownTime - mShowRequestTime);
+    }
+
+    void onEnterAnimationStarted() {
+        if (!mRecording) return;
+        mEnterAnimationRunning = true;
+        mLastEnterFrameTimeNanos = 0;
+        Choreographer.getInstance().postFrameCallback(mEnterFrameCallback);
+    }
+
+    void onEnterAnimationEnded() {
+        stopEnterAnimationFrames();
+    }
+
+    void onDragStarted() {
+        if (!mRecording) return;
+        mDragStartTime = SystemClock.uptimeMillis();
+    }
+
+    void onDragFinished() {
+        if (!mRecording || mDragStartTime == 0) return;
+        mMetrics.setDragDurationMs(SystemClock.uptimeMillis() - mDragStartTime);
+        mDragStartTime = 0;
+    }
+
+    /**
+     * @return Whether the current session is recorded.
+     */
+    boolean isRecording() {
+        return mRecording;
+    }
+
+    void recordHighlightLatency(long latencyMicros) {
+        if (mRecording) mMetrics.getHighlightLatency().record(latencyMicros);
+    }
+
+    void recordAutoScrollLatency(long latencyMicros) {
+        if (mRecording) mMetrics.getAutoScrollLatency().record(latencyMicros);
+    }
+
+    /**
+     * @param position The list position of the row now under the finger, or -1.
+     */
+    void onHighlightChanged(int position) {
+        mEventLog.log(AppMenuEventLog.EventType.HIGHLIGHT_CHANGED, position);
+    }
+
+    void onAutoScrollStarted() {
+        mEventLog.log(AppMenuEventLog.EventType.AUTO_SCROLL_STARTED, 0);
+    }
+
+    void onAutoScrollStopped() {
+        mEventLog.log(AppMenuEventLog.EventType.AUTO_SCROLL_STOPPED, 0);
+    }
+
+    void onItemTraversed() {
+        if (!mRecording) return;
+        mMetrics.incrementItemsTraversed();
+    }
+
+    /**
+     * @param selectionTime The {@link SystemClock#uptimeMillis()} time of the input selecting an
+     *                      item. Ignored if the selection of this session has already started.
+     */
+    void onItemSelected(long selectionTime) {
+        if (!mRecording || mSelectionTime != 0) return;
+        mSelectionTime = selectionTime;
+    }
+
+    void onItemDispatched(int itemId) {
+        mEventLog.log(AppMenuEventLog.EventType.CLICK_DISPATCHED, itemId);
+        if (!mRecording) return;
+        long selectionTime = mSelectionTime != 0 ? mSelectionTime : SystemClock.uptimeMillis();
+        mMetrics.setSelection(itemId, SystemClock.uptimeMillis() - selectionTime);
+    }
+
+    void onDismissed() {
+        mEventLog.log(AppMenuEventLog.EventType.DISMISSED, 0);
+        if (mFirstFrameView != null) {
+            mFirstFrameView.getViewTreeObserver().removeOnPreDrawListener(mFirstFrameListener);
+            mFirstFrameView = null;
+        }
+        if (!mRecording) return;
+        onDragFinished();
+        stopEnterAnimationFrames();
+        mReportPending = true;
+        mUiHandler.post(mReportRunnable);
+    }
+
+    private void stopEnterAnimationFrames() {
+        if (!mEnterAnimationRunning) return;
+        mEnterAnimationRunning = false;
+        Choreographer.getInstance().removeFrameCallback(mEnterFrameCallback);
+    }
+
+    private void report() {
+        if (!mRecording) return;
+        mRecording = false;
+        for (int i = 0; i < mListeners.size(); i++) {
+            mListeners.get(i).onMenuSessionFinished(mMetrics);
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package xyz.aprildown.chromemenu;
+
+import android.graphics.Color;
+import android.graphics.PixelFormat;
+import android.graphics.drawable.ColorDrawable;
+import android.graphics.drawable.Drawable;
+import android.graphics.drawable.DrawableContainer;
+import android.graphics.drawable.LayerDrawable;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.ListView;
+
+import java.io.PrintWriter;
+
+/**
+ * Counts the background layers painted under each visible row of a showing menu, to check how
+ * many times its pixels are painted. Only backgrounds that paint in their current state count, so
+ * a selector of a row at rest doesn't, and the layers of a {@link LayerDrawable}, such as the
+ * highlight of {@link ViewHighlighter}, count one by one.
+ * <p>
+ * The count of a row is the menu background, the list background and every painting background
+ * of the row and its children. Children don't always cover the whole row, so it's an upper bound
+ * of the layers under a pixel.
+ */
+final class AppMenuOverdrawAudit {
+    private AppMenuOverdrawAudit() {
+    }
+
+    /**
+     * Writes one line per visible row of {@code listView}, with its layer count and the class
+     * names of the painting backgrounds from the bottom up.
+     *
+     * @param menuBackground The background of the window the list is shown in.
+     */
+    static void dump(Drawable menuBackground, ListView listView, PrintWriter writer) {
+        StringBuilder layers = new StringBuilder();
+        int baseCount = appendLayers(menuBackground, "menu", layers);
+        baseCount += appendLayers(listView.getBackground(), "list", layers);
+        String baseLayers = layers.toString();
+
+        int firstPosition = listView.getFirstVisiblePosition();
+        int headerCount = listView.getHeaderViewsCount();
+        int total = 0;
+        for (int i = 0; i < listView.getChildCount(); i++) {
+            layers.setLength(0);
+            layers.append(baseLayers);
+            int count = baseCount + appendViewLayers(listView.getChildAt(i), "row", layers);
+            total += count;
+
+            int position = firstPosition + i;
+            writer.print(position < headerCount ? "header " : "row ");
+            writer.print(position - headerCount);
+            writer.print(": ");
+            writer.print(count);
+            writer.print(" layers [");
+            writer.print(layers);
+            writer.println(']');
+        }
+        if (listView.getChildCount() > 0) {
+            writer.print("average: ");
+            writer.println((float) total / listView.getChildCount());
+        }
+        writer.flush();
+    }
+
+    private static int appendViewLayers(View view, String name, StringBuilder layers) {
+        if (view.getVisibility() != View.VISIBLE) return 0;
+        int count = appendLayers(view.getBackground(), name, layers);
+        if (view instanceof ViewGroup) {
+            ViewGroup group = (ViewGroup) view;
+            for (int i = 0; i < group.getChildCount(); i++) {
+                View child = group.getChildAt(i);
+                count += appendViewLayers(child, child.getClass().getSimpleName(), layers);
+            }
+        }
+        return count;
+    }
+
+    private static int appendLayers(Drawable drawable, String owner, StringBuilder layers) {
+        if (drawable == null || !drawable.isVisible()) return 0;
+        if (drawable instanceof LayerDrawable) {
+            LayerDrawable layerDrawable = (LayerDrawable) drawable;
+            int count = 0;
+            for (int i = 0; i < layerDrawable.getNumberOfLayers(); i++) {
+                // The mask of a ripple is never drawn.
+                if (layerDrawable.getId(i) == android.R.id.mask) continue;
+                count += appendLayers(layerDrawable.getDrawable(i), owner, layers);
+            }
+            return count;
+        }
+        if (drawable instanceof DrawableContainer) {
+            // The drawable of the current state, if any.
+            return appendLayers(drawable.getCurrent(), owner, layers);
+        }
+        if (!paints(drawable)) return 0;
+
+        if (layers.length() > 0) layers.append(", ");
+        layers.append(owner).append(':').append(drawable.getClass().getSimpleName());
+        return 1;
+    }
+
+    private static boolean paints(Drawable drawable) {
+        if (drawable instanceof ColorDrawable) {
+            return Color.alpha(((ColorDrawable) drawable).getColor()) != 0;
+        }
+        return drawable.getOpacity() != PixelFormat.TRANSPARENT;
+    }
+}
@@ -0,0 +1,38 @@
+package xyz.aprildown.chromemenu;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+
+import androidx.annotation.IntDef;
+
+/**
+ * How far the App Menu has stepped down its effects after dropping frames, see
+ * {@link AppMenuHandler#getQualityLevel()}. Every level also turns off the effects of the levels
+ * before it.
+ */
+@IntDef({AppMenuQualityLevel.FULL, AppMenuQualityLevel.NO_ITEM_ANIMATION,
+        AppMenuQualityLevel.NO_WINDOW_ANIMATION, AppMenuQualityLevel.NO_FADING_EDGE,
+        AppMenuQualityLevel.NO_PULSE})
+@Retention(RetentionPolicy.SOURCE)
+public @interface AppMenuQualityLevel {
+    /**
+     * Every effect allowed by the feature profile is shown.
+     */
+    int FULL = 0;
+    /**
+     * The rows don't fade in one after another.
+     */
+    int NO_ITEM_ANIMATION = 1;
+    /**
+     * The popup window doesn't slide in and out.
+     */
+    int NO_WINDOW_ANIMATION = 2;
+    /**
+     * The edges of a scrollable menu don't fade out.
+     */
+    int NO_FADING_EDGE = 3;
+    /**
+     * Highlighted items don't pulse.
+     */
+    int NO_PULSE = 4;
+}
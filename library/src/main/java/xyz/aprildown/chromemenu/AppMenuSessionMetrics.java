@@ -0,0 +1,161 @@
+package xyz.aprildown.chromemenu;
+
+/**
+ * The timings of one App Menu session, reported to {@link AppMenuMetricsListener}s.
+ * <p>
+ * A single instance is allocated per {@link AppMenuHandler} and filled again by every session, so
+ * recording never allocates.
+ */
+public final class AppMenuSessionMetrics {
+    /**
+     * Returned by the getters when the value wasn't measured in this session.
+     */
+    public static final long UNKNOWN = -1;
+    /**
+     * The number of enter animation frames kept. Later frames are dropped.
+     */
+    public static final int MAX_ENTER_ANIMATION_FRAMES = 64;
+
+    private long mInputToShownMs;
+    private long mShownToFirstFrameMs;
+    private final long[] mEnterAnimationFrameTimesNanos = new long[MAX_ENTER_ANIMATION_FRAMES];
+    private int mEnterAnimationFrameCount;
+    private long mDragDurationMs;
+    private int mItemsTraversed;
+    private boolean mHasSelection;
+    private int mSelectedItemId;
+    private long mSelectionToDispatchMs;
+    private final LatencyHistogram mHighlightLatency = new LatencyHistogram();
+    private final LatencyHistogram mAutoScrollLatency = new LatencyHistogram();
+
+    AppMenuSessionMetrics() {
+        reset();
+    }
+
+    void reset() {
+        mInputToShownMs = UNKNOWN;
+        mShownToFirstFrameMs = UNKNOWN;
+        mEnterAnimationFrameCount = 0;
+        mDragDurationMs = UNKNOWN;
+        mItemsTraversed = 0;
+        mHasSelection = false;
+        mSelectedItemId = 0;
+        mSelectionToDispatchMs = UNKNOWN;
+        mHighlightLatency.reset();
+        mAutoScrollLatency.reset();
+    }
+
+    /**
+     * @return The time from the input that opened the menu, usually a touch on the menu button,
+     * to the popup being added to the window.
+     */
+    public long getInputToShownMs() {
+        return mInputToShownMs;
+    }
+
+    /**
+     * @return The time from the popup being added to the window to its first frame being drawn.
+     */
+    public long getShownToFirstFrameMs() {
+        return mShownToFirstFrameMs;
+    }
+
+    /**
+     * @return The number of frames recorded while the rows were animating in. 0 if the rows
+     * weren't animated.
+     */
+    public int getEnterAnimationFrameCount() {
+        return mEnterAnimationFrameCount;
+    }
+
+    /**
+     * @param index The index of a frame, less than {@link #getEnterAnimationFrameCount()}.
+     * @return The time between this frame and the previous one, in nanoseconds.
+     */
+    public long getEnterAnimationFrameTimeNanos(int index) {
+        if (index < 0 || index >= mEnterAnimationFrameCount) {
+            throw new IndexOutOfBoundsException(
+                    "Invalid frame " + index + "/" + mEnterAnimationFrameCount);
+        }
+        return mEnterAnimationFrameTimesNanos[index];
+    }
+
+    /**
+     * @return How long the finger dragged through the menu after pressing the menu button.
+     */
+    public long getDragDurationMs() {
+        return mDragDurationMs;
+    }
+
+    /**
+     * @return The number of times the finger moved onto another row while dragging.
+     */
+    public int getItemsTraversed() {
+        return mItemsTraversed;
+    }
+
+    /**
+     * @return Whether an item was selected in this session.
+     */
+    public boolean hasSelection() {
+        return mHasSelection;
+    }
+
+    /**
+     * @return The id of the selected item. Only valid if {@link #hasSelection()}.
+     */
+    public int getSelectedItemId() {
+        return mSelectedItemId;
+    }
+
+    /**
+     * @return The time from the input selecting an item to the item being passed to
+     * {@link AppMenuPropertiesDelegate#onMenuItemClicked}.
+     */
+    public long getSelectionToDispatchMs() {
+        return mSelectionToDispatchMs;
+    }
+
+    /**
+     * @return The latencies from a touch event moving the highlight to another row to the frame
+     * showing it being drawn, while dragging.
+     */
+    public LatencyHistogram getHighlightLatency() {
+        return mHighlightLatency;
+    }
+
+    /**
+     * @return The latencies from an auto-scroll step to the frame showing it being drawn, while
+     * dragging near the edges of a long menu.
+     */
+    public LatencyHistogram getAutoScrollLatency() {
+        return mAutoScrollLatency;
+    }
+
+    void setInputToShownMs(long inputToShownMs) {
+        mInputToShownMs = inputToShownMs;
+    }
+
+    void setShownToFirstFrameMs(long shownToFirstFrameMs) {
+        mShownToFirstFrameMs = shownToFirstFrameMs;
+    }
+
+    void addEnterAnimationFrameTime(long frameTimeNanos) {
+        if (mEnterAnimationFrameCount == MAX_ENTER_ANIMATION_FRAMES) return;
+        mEnterAnimationFrameTimesNanos[mEnterAnimationFrameCount++] = frameTimeNanos;
+    }
+
+    void setDragDurationMs(long dragDurationMs) {
+        mDragDurationMs = dragDurationMs;
+    }
+
+    void incrementItemsTraversed() {
+        mItemsTraversed++;
+    }
+
+    void setSelection(int itemId, long selectionToDispatchMs) {
+        mHasSelection = true;
+        mSelectedItemId = itemId;
+        mSelectionToDispatchMs = selectionToDispatchMs;
+    }
+}
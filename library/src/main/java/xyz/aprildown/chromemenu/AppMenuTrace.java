@@ -0,0 +1,65 @@
+package xyz.aprildown.chromemenu;
+
+import android.os.Build;
+
+import androidx.tracing.Trace;
+
+/**
+ * Trace sections of the App Menu. They show up in systrace and Perfetto under the app's process.
+ * <p>
+ * Section names are constants so tracing never allocates, and a section costs a single flag check
+ * when tracing is off. Sections spanning several frames are async sections, which are only
+ * recorded on Android Q and later where they don't go through reflection.
+ */
+final class AppMenuTrace {
+    static final String SHOW_APP_MENU = "AppMenu.showAppMenu";
+    static final String PREPARE_MENU = "AppMenu.prepareMenu";
+    static final String INFLATE_MENU = "AppMenu.inflateMenu";
+    static final String OBTAIN_STYLED_ATTRIBUTES = "AppMenu.obtainStyledAttributes";
+    static final String CREATE_ADAPTER = "AppMenu.createAdapter";
+    static final String INFLATE_HEADER = "AppMenu.inflateHeader";
+    static final String INFLATE_FOOTER = "AppMenu.inflateFooter";
+    static final String SET_MENU_HEIGHT = "AppMenu.setMenuHeight";
+    static final String SHOW_AT_LOCATION = "AppMenu.showAtLocation";
+    static final String BIND_ROW = "AppMenu.bindRow";
+    static final String HANDLE_DRAGGING = "AppMenu.handleDragging";
+    static final String AUTO_SCROLL_FRAME = "AppMenu.autoScrollFrame";
+
+    // Async sections.
+    static final String FIRST_LAYOUT = "AppMenu.firstLayout";
+    static final String ENTER_ANIMATION = "AppMenu.enterAnimation";
+
+    /**
+     * Only one menu is shown at a time, so every async section uses the same cookie.
+     */
+    private static final int ASYNC_COOKIE = 0;
+
+    private AppMenuTrace() {
+    }
+
+    /**
+     * Starts a section that must be ended by {@link #end()} on the same thread.
+     */
+    static void begin(String sectionName) {
+        Trace.beginSection(sectionName);
+    }
+
+    static void end() {
+        Trace.endSection();
+    }
+
+    /**
+     * Starts a section that can end in a later frame with {@link #endAsync(String)}.
+     */
+    static void beginAsync(String sectionName) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+            Trace.beginAsyncSection(sectionName, ASYNC_COOKIE);
+        }
+    }
+
+    static void endAsync(String sectionName) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+            Trace.endAsyncSection(sectionName, ASYNC_COOKIE);
+        }
+    }
+}
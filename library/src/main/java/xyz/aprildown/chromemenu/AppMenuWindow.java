@@ -0,0 +1,83 @@
+package xyz.aprildown.chromemenu;
+
+import android.graphics.drawable.Drawable;
+import android.view.View;
+import android.widget.PopupWindow;
+
+import androidx.annotation.StyleRes;
+
+/**
+ * The window an {@link AppMenu} is shown in. The methods follow {@link PopupWindow}, which is what
+ * {@link PopupAppMenuWindow} uses. {@link OverlayAppMenuWindow} draws the menu inside the activity
+ * window instead.
+ */
+interface AppMenuWindow {
+    /**
+     * @param needed Whether the menu has a text field and needs the input method.
+     */
+    void setInputMethodNeeded(boolean needed);
+
+    /**
+     * @param focusable Whether the menu takes focus from the activity window. A menu that doesn't
+     *                  is dismissed by touches outside it and gets its keys from
+     *                  {@link AppMenu#onHostKeyEvent(android.view.KeyEvent)}.
+     */
+    void setFocusable(boolean focusable);
+
+    /**
+     * @return Whether touches outside the menu are kept from the views below it by the window
+     * itself. If not, the activity has to pass them to
+     * {@link AppMenu#onHostTouchEvent(android.view.MotionEvent)}.
+     */
+    boolean isTouchModal();
+
+    /**
+     * @param interceptor A listener that sees the touches of the window before the menu does,
+     *                    including {@link android.view.MotionEvent#ACTION_OUTSIDE}.
+     */
+    void setTouchInterceptor(View.OnTouchListener interceptor);
+
+    void setOnDismissListener(PopupWindow.OnDismissListener listener);
+
+    Drawable getBackground();
+
+    void setBackgroundDrawable(Drawable background);
+
+    /**
+     * Casts a shadow from the outline of the background instead of one drawn by the background.
+     * Only has an effect on Android L and later.
+     */
+    void setElevation(float elevation);
+
+    /**
+     * @param animationStyle A style with {@code android:windowEnterAnimation} and
+     *                       {@code android:windowExitAnimation}, or 0 for no animation.
+     */
+    void setAnimationStyle(@StyleRes int animationStyle);
+
+    void setWidth(int width);
+
+    void setHeight(int height);
+
+    void setContentView(View contentView);
+
+    /**
+     * @return The view that draws the background and the shadow of the menu, with the content
+     * view inside it. Only valid while the menu is showing.
+     */
+    View getFrameView();
+
+    /**
+     * Shows the menu at a position in the window of {@code parent}.
+     */
+    void showAtLocation(View parent, int x, int y);
+
+    /**
+     * Moves and resizes the menu while it's showing. A width or height of -1 keeps the current one.
+     */
+    void update(int x, int y, int width, int height);
+
+    void dismiss();
+
+    boolean isShowing();
+}
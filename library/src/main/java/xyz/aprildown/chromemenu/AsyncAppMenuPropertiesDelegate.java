@@ -0,0 +1,69 @@
+package xyz.aprildown.chromemenu;
+
+import android.view.Menu;
+import android.view.MenuItem;
+
+import androidx.annotation.IdRes;
+import androidx.annotation.NonNull;
+
+/**
+ * An {@link AppMenuPropertiesDelegate} that is allowed to finish preparing some menu items after
+ * the App Menu is already showing.
+ * <p>
+ * The menu is shown right after {@link #prepareMenu(Menu)} and
+ * {@link #prepareMenuAsync(Menu, Updater)} return. Items marked as pending are shown as disabled
+ * placeholder rows until their update arrives. If an update doesn't arrive before
+ * {@link #getPrepareMenuTimeoutMs()}, the last update delivered for that item in an earlier
+ * preparation is applied instead.
+ */
+public interface AsyncAppMenuPropertiesDelegate extends AppMenuPropertiesDelegate {
+
+    /**
+     * @return How long, in milliseconds, pending items wait for their update before falling back
+     * to their last known state.
+     */
+    long getPrepareMenuTimeoutMs();
+
+    /**
+     * Called on the UI thread right after {@link #prepareMenu(Menu)} every time the menu is shown.
+     * Items whose state isn't known yet should be marked with {@link Updater#setPending(int)}
+     * before this method returns. Their state can then be delivered from any thread through
+     * {@link Updater#update(int, ItemUpdate)}.
+     *
+     * @param menu    Menu that will be used as the source for the App Menu pop up.
+     * @param updater Updater bound to this preparation. Updates delivered through an updater of
+     *                an earlier preparation are ignored.
+     */
+    void prepareMenuAsync(@NonNull Menu menu, @NonNull Updater updater);
+
+    /**
+     * A change to a single menu item. It is always applied on the UI thread.
+     */
+    interface ItemUpdate {
+        /**
+         * @param item The menu item to update.
+         */
+        void apply(@NonNull MenuItem item);
+    }
+
+    /**
+     * Receives the results of {@link #prepareMenuAsync(Menu, Updater)}.
+     */
+    interface Updater {
+        /**
+         * Marks an item as pending. Must be called on the UI thread inside
+         * {@link #prepareMenuAsync(Menu, Updater)}.
+         *
+         * @param itemId The id of the item, or of a child of a button row.
+         */
+        void setPending(@IdRes int itemId);
+
+        /**
+         * Delivers the state of an item. Can be called from any thread.
+         *
+         * @param itemId The id of the item, or of a child of a button row.
+         * @param update The change to apply to the item.
+         */
+        void update(@IdRes int itemId, @NonNull ItemUpdate update);
+    }
+}
@@ -0,0 +1,115 @@
+package xyz.aprildown.chromemenu;
+
+import android.app.ActivityManager;
+import android.content.Context;
+import android.os.AsyncTask;
+import android.os.Build;
+
+import androidx.annotation.NonNull;
+
+/**
+ * The default {@link DeviceTierProvider}. The tier is detected once per process on a background
+ * thread from the total memory, {@link ActivityManager#isLowRamDevice()}, the memory class and the
+ * number of cores. Until the detection finishes, the device is treated as {@link DeviceTier#MID}.
+ * <p>
+ * Subclasses can override {@link #getFeatureProfile(int)} to keep the detection but change what
+ * each tier enables.
+ */
+public class DefaultDeviceTierProvider implements DeviceTierProvider {
+    // A device reporting strictly more total memory in megabytes cannot be considered 'low-end'.
+    private static final int LOW_MEMORY_DEVICE_THRESHOLD_MB = 512;
+    private static final int O_LOW_MEMORY_DEVICE_THRESHOLD_MB = 1024;
+    private static final int HIGH_MEMORY_DEVICE_THRESHOLD_MB = 3072;
+    private static final int LOW_MEMORY_CLASS_MB = 64;
+    private static final int LOW_END_MAX_CORES = 2;
+    private static final int HIGH_END_MIN_CORES = 6;
+
+    private static final int UNKNOWN_TIER = -1;
+    private static volatile int sDetectedTier = UNKNOWN_TIER;
+    private static boolean sDetectionStarted;
+
+    private static final AppMenuFeatureProfile LOW_PROFILE = new AppMenuFeatureProfile.Builder()
+            .setWindowAnimationEnabled(false)
+            .setItemEnterAnimationEnabled(false)
+            .setFadingEdgeEnabled(false)
+            .setPulseFrameRate(20)
+            .setMaxCachedPages(3)
+            .setMaxCachedSubMenuLevels(2)
+            .build();
+    private static final AppMenuFeatureProfile MID_PROFILE =
+            new AppMenuFeatureProfile.Builder().build();
+    private static final AppMenuFeatureProfile HIGH_PROFILE = new AppMenuFeatureProfile.Builder()
+            .setMaxCachedPages(9)
+            .setMaxCachedSubMenuLevels(8)
+            .build();
+
+    /**
+     * Starts detecting the tier of the device if no other provider has done it yet.
+     *
+     * @param context Any context, only the application context is kept during the detection.
+     */
+    public DefaultDeviceTierProvider(@NonNull Context context) {
+        startDetection(context.getApplicationContext());
+    }
+
+    private static synchronized void startDetection(final Context appContext) {
+        if (sDetectionStarted) return;
+        sDetectionStarted = true;
+        AsyncTask.THREAD_POOL_EXECUTOR.execute(new Runnable() {
+            @Override
+            public void run() {
+                sDetectedTier = detectDeviceTier(appContext);
+            }
+        });
+    }
+
+    @DeviceTier
+    private static int detectDeviceTier(Context appContext) {
+        ActivityManager activityManager =
+                (ActivityManager) appContext.getSystemService(Context.ACTIVITY_SERVICE);
+        if (activityManager == null) return DeviceTier.MID;
+
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT
+                && activityManager.isLowRamDevice()) {
+            return DeviceTier.LOW;
+        }
+
+        ActivityManager.MemoryInfo memoryInfo = new ActivityManager.MemoryInfo();
+        activityManager.getMemoryInfo(memoryInfo);
+        long totalMemoryMB = memoryInfo.totalMem / (1024 * 1024);
+        int lowMemoryThresholdMB = Build.VERSION.SDK_INT >= Build.VERSION_CODES.O
+                ? O_LOW_MEMORY_DEVICE_THRESHOLD_MB : LOW_MEMORY_DEVICE_THRESHOLD_MB;
+        int cores = Runtime.getRuntime().availableProcessors();
+
+        if ((totalMemoryMB > 0 && totalMemoryMB <= lowMemoryThresholdMB)
+                || activityManager.getMemoryClass() <= LOW_MEMORY_CLASS_MB
+                || cores <= LOW_END_MAX_CORES) {
+            return DeviceTier.LOW;
+        }
+        if (totalMemoryMB >= HIGH_MEMORY_DEVICE_THRESHOLD_MB && cores >= HIGH_END_MIN_CORES) {
+            return DeviceTier.HIGH;
+        }
+        return DeviceTier.MID;
+    }
+
+    @Override
+    @DeviceTier
+    public int getDeviceTier() {
+        int tier = sDetectedTier;
+        return tier == UNKNOWN_TIER ? DeviceTier.MID : tier;
+    }
+
+    @Override
+    @NonNull
+    public AppMenuFeatureProfile getFeatureProfile(@DeviceTier int tier) {
+        switch (tier) {
+            case DeviceTier.LOW:
+                return LOW_PROFILE;
+            case DeviceTier.HIGH:
+                return HIGH_PROFILE;
+            case DeviceTier.MID:
+            default:
+                return MID_PROFILE;
+        }
+    }
+}
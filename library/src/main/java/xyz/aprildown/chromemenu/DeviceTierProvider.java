@@ -0,0 +1,47 @@
+package xyz.aprildown.chromemenu;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+
+import androidx.annotation.IntDef;
+import androidx.annotation.NonNull;
+
+/**
+ * Classifies the device the App Menu runs on and decides which effects the menu can afford on it.
+ * <p>
+ * {@link AppMenuHandler} uses a {@link DefaultDeviceTierProvider} unless another provider is set
+ * with {@link AppMenuHandler#setDeviceTierProvider(DeviceTierProvider)}. Both methods are called
+ * on the UI thread every time the menu is shown, so they should only return cached values.
+ */
+public interface DeviceTierProvider {
+
+    /**
+     * @return The tier of this device.
+     */
+    @DeviceTier
+    int getDeviceTier();
+
+    /**
+     * @param tier A tier returned by {@link #getDeviceTier()}.
+     * @return The effects and cache sizes the menu should use on devices of this tier.
+     */
+    @NonNull
+    AppMenuFeatureProfile getFeatureProfile(@DeviceTier int tier);
+
+    @IntDef({DeviceTier.LOW, DeviceTier.MID, DeviceTier.HIGH})
+    @Retention(RetentionPolicy.SOURCE)
+    @interface DeviceTier {
+        /**
+         * Devices with little memory or few cores. Decorative effects should be turned off.
+         */
+        int LOW = 0;
+        /**
+         * Devices that can run every effect with the default cache sizes.
+         */
+        int MID = 1;
+        /**
+         * Devices with plenty of memory and cores. Caches can be larger.
+         */
+        int HIGH = 2;
+    }
+}
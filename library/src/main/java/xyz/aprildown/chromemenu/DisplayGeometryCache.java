@@ -0,0 +1,120 @@
+package xyz.aprildown.chromemenu;
+
+import android.app.Activity;
+import android.graphics.Point;
+import android.graphics.Rect;
+import android.view.Display;
+import android.view.View;
+import android.view.ViewTreeObserver;
+import android.view.WindowManager;
+
+/**
+ * The window and display geometry the menu is sized and placed with.
+ * <p>
+ * Reading the visible display frame goes through the window manager, so the geometry is only read
+ * again after the activity window has been laid out, as it is after the insets or size of the
+ * window change, instead of every time the menu is shown.
+ * <p>
+ * The input method only changes the layout of windows that resize for it. For other windows its
+ * appearance is only seen by the visible display frame, which is then read on every show.
+ * <p>
+ * Changes are followed through a global layout listener, which is added next to any the app has,
+ * so nothing the app set on its views is replaced.
+ */
+final class DisplayGeometryCache {
+    private final Activity mActivity;
+    private final Rect mVisibleDisplayFrame = new Rect();
+    private final Point mDisplaySize = new Point();
+    private int mRotation;
+    private float mRefreshRate;
+    private ViewTreeObserver mObserver;
+    private boolean mIsValid;
+
+    private final ViewTreeObserver.OnGlobalLayoutListener mLayoutListener =
+            new ViewTreeObserver.OnGlobalLayoutListener() {
+                @Override
+                public void onGlobalLayout() {
+                    mIsValid = false;
+                }
+            };
+
+    DisplayGeometryCache(Activity activity) {
+        mActivity = activity;
+    }
+
+    /**
+     * Makes sure the geometry is current. Only queries the window manager if nothing has been read
+     * yet, the window has been laid out since the last read, or the window doesn't resize for the
+     * input method.
+     */
+    void ensureUpToDate() {
+        startListening();
+        if (!mIsValid) {
+            refresh();
+        } else if (!isResizedForInputMethod()) {
+            readVisibleDisplayFrame();
+        }
+    }
+
+    /**
+     * @return The display area the menu is supposed to fit in. Must not be modified.
+     */
+    Rect getVisibleDisplayFrame() {
+        return mVisibleDisplayFrame;
+    }
+
+    int getDisplayHeight() {
+        return mDisplaySize.y;
+    }
+
+    /**
+     * @return The rotation of the display as one of the {@link android.view.Surface} ROTATION
+     * constants.
+     */
+    int getRotation() {
+        return mRotation;
+    }
+
+    float getRefreshRate() {
+        return mRefreshRate;
+    }
+
+    private void startListening() {
+        if (mObserver != null && mObserver.isAlive()) return;
+        mObserver = mActivity.getWindow().getDecorView().getViewTreeObserver();
+        mObserver.addOnGlobalLayoutListener(mLayoutListener);
+        // Whatever happened while nothing was listening is unknown.
+        mIsValid = false;
+    }
+
+    private void refresh() {
+        readVisibleDisplayFrame();
+
+        Display display = mActivity.getWindowManager().getDefaultDisplay();
+        display.getSize(mDisplaySize);
+        mRotation = display.getRotation();
+        mRefreshRate = display.getRefreshRate();
+
+        mIsValid = true;
+    }
+
+    private void readVisibleDisplayFrame() {
+        View decorView = mActivity.getWindow().getDecorView();
+        decorView.getWindowVisibleDisplayFrame(mVisibleDisplayFrame);
+
+        // Use full size of window for abnormal appRect.
+        if (mVisibleDisplayFrame.left < 0 && mVisibleDisplayFrame.top < 0) {
+            mVisibleDisplayFrame.set(0, 0, decorView.getWidth(), decorView.getHeight());
+        }
+    }
+
+    /**
+     * @return Whether the window is laid out again when the input method shows or hides, so the
+     * layout listener sees the change.
+     */
+    private boolean isResizedForInputMethod() {
+        int softInputMode = mActivity.getWindow().getAttributes().softInputMode;
+        return (softInputMode & WindowManager.LayoutParams.SOFT_INPUT_MASK_ADJUST)
+                == WindowManager.LayoutParams.SOFT_INPUT_ADJUST_RESIZE;
+    }
+}
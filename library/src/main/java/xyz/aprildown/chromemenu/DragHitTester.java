@@ -0,0 +1,88 @@
+package xyz.aprildown.chromemenu;
+
+/**
+ * Finds which views of the App Menu are under the finger while dragging. The screen bounds of the
+ * candidate views are collected for every touch event and stored in arrays that are reused, so
+ * resolving a touch doesn't allocate. It only works on plain numbers so it can be run and
+ * benchmarked without Android.
+ */
+final class DragHitTester {
+    private static final int INITIAL_CAPACITY = 16;
+
+    private int[] mBounds = new int[INITIAL_CAPACITY * 4];
+    private boolean[] mHittable = new boolean[INITIAL_CAPACITY];
+    private boolean[] mHits = new boolean[INITIAL_CAPACITY];
+    private int mSize;
+
+    /**
+     * Removes all candidates.
+     */
+    void clear() {
+        mSize = 0;
+    }
+
+    /**
+     * @return The number of candidates.
+     */
+    int size() {
+        return mSize;
+    }
+
+    /**
+     * Adds a candidate, in screen coordinates.
+     *
+     * @param hittable Whether the candidate can be hit at all, for example if it's enabled and
+     *                 shown.
+     */
+    void add(int left, int top, int right, int bottom, boolean hittable) {
+        if (mSize == mHittable.length) grow();
+        int offset = mSize * 4;
+        mBounds[offset] = left;
+        mBounds[offset + 1] = top;
+        mBounds[offset + 2] = right;
+        mBounds[offset + 3] = bottom;
+        mHittable[mSize] = hittable;
+        mHits[mSize] = false;
+        mSize++;
+    }
+
+    /**
+     * Checks every candidate against a point. Nested candidates can all be hit.
+     *
+     * @return The number of candidates under the point.
+     */
+    int resolve(int x, int y) {
+        int hitCount = 0;
+        for (int i = 0; i < mSize; i++) {
+            int offset = i * 4;
+            // Same as Rect.contains(): empty bounds never contain anything.
+            boolean hit = mHittable[i]
+                    && mBounds[offset] < mBounds[offset + 2]
+                    && mBounds[offset + 1] < mBounds[offset + 3]
+                    && x >= mBounds[offset] && x < mBounds[offset + 2]
+                    && y >= mBounds[offset + 1] && y < mBounds[offset + 3];
+            mHits[i] = hit;
+            if (hit) hitCount++;
+        }
+        return hitCount;
+    }
+
+    /**
+     * @return Whether the candidate at {@code index} was under the point of the last
+     * {@link #resolve(int, int)}.
+     */
+    boolean isHit(int index) {
+        return mHits[index];
+    }
+
+    private void grow() {
+        int capacity = mHittable.length * 2;
+        int[] bounds = new int[capacity * 4];
+        System.arraycopy(mBounds, 0, bounds, 0, mSize * 4);
+        mBounds = bounds;
+        boolean[] hittable = new boolean[capacity];
+        System.arraycopy(mHittable, 0, hittable, 0, mSize);
+        mHittable = hittable;
+        mHits = new boolean[capacity];
+    }
+}
@@ -0,0 +1,81 @@
+package xyz.aprildown.chromemenu;
+
+import java.util.Arrays;
+
+/**
+ * A fixed-size histogram of latencies with percentile queries. Latencies are counted in buckets
+ * of {@link #BUCKET_WIDTH_MICROS}, longer ones in an overflow bucket, so recording never
+ * allocates.
+ */
+public final class LatencyHistogram {
+    /**
+     * The width of a bucket, about a quarter of a frame at 120 Hz. Latencies up to 256 ms get a
+     * bucket of their own.
+     */
+    public static final long BUCKET_WIDTH_MICROS = 2000;
+    private static final int BUCKET_COUNT = 128;
+
+    private final int[] mBuckets = new int[BUCKET_COUNT + 1];
+    private int mCount;
+    private long mSumMicros;
+    private long mMaxMicros;
+
+    LatencyHistogram() {
+    }
+
+    void record(long latencyMicros) {
+        if (latencyMicros < 0) latencyMicros = 0;
+        long bucket = latencyMicros / BUCKET_WIDTH_MICROS;
+        mBuckets[bucket < BUCKET_COUNT ? (int) bucket : BUCKET_COUNT]++;
+        mCount++;
+        mSumMicros += latencyMicros;
+        if (latencyMicros > mMaxMicros) mMaxMicros = latencyMicros;
+    }
+
+    void reset() {
+        Arrays.fill(mBuckets, 0);
+        mCount = 0;
+        mSumMicros = 0;
+        mMaxMicros = 0;
+    }
+
+    /**
+     * @return The number of recorded latencies.
+     */
+    public int getCount() {
+        return mCount;
+    }
+
+    /**
+     * @return The mean latency, or 0 if nothing was recorded.
+     */
+    public long getMeanMicros() {
+        return mCount == 0 ? 0 : mSumMicros / mCount;
+    }
+
+    /**
+     * @return The longest recorded latency.
+     */
+    public long getMaxMicros() {
+        return mMaxMicros;
+    }
+
+    /**
+     * @param percentile A percentile between 0 and 100.
+     * @return An upper bound of the latency below which {@code percentile} percent of the
+     * recorded latencies fall, precise to {@link #BUCKET_WIDTH_MICROS}. 0 if nothing was recorded.
+     */
+    public long getPercentileMicros(double percentile) {
+        if (mCount == 0) return 0;
+        if (percentile < 0 || percentile > 100) {
+            throw new IllegalArgumentException("Invalid percentile " + percentile);
+        }
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100 * mCount));
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += mBuckets[i];
+            if (seen >= rank) return Math.min((i + 1) * BUCKET_WIDTH_MICROS, mMaxMicros);
+        }
+        return mMaxMicros;
+    }
+}
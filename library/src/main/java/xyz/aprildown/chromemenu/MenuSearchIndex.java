@@ -0,0 +1,184 @@
+package xyz.aprildown.chromemenu;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * A case-insensitive substring index over the titles of a menu snapshot.
+ * <p>
+ * Queries of three or more characters start from the shortest trigram posting list instead of
+ * every title. A query that extends the previous one is only checked against the previous
+ * matches, so typing one more character never rescans the whole menu. The result buffers are
+ * allocated once per index and reused by every query, and trigrams are looked up in a sorted
+ * {@code long[]}, so a keystroke doesn't box anything.
+ * <p>
+ * {@code MenuSearchIndexBenchmark} in the benchmark module measures filtering a large menu.
+ */
+final class MenuSearchIndex {
+    private static final int GRAM_LENGTH = 3;
+
+    private final String[] mTitles;
+    /**
+     * The distinct trigrams of the titles in increasing order, each packed into a long.
+     */
+    private final long[] mGrams;
+    /**
+     * The rows containing each trigram of {@link #mGrams}, in increasing order.
+     */
+    private final int[][] mPostings;
+    private final int[] mAllPositions;
+
+    private int[] mResult;
+    private int[] mScratch;
+    private int mResultCount;
+    private String mLastQuery = "";
+
+    /**
+     * @param titles The searchable text of every row. Rows are referred to by their index in this
+     *               array.
+     */
+    MenuSearchIndex(CharSequence[] titles) {
+        int count = titles.length;
+        mTitles = new String[count];
+        mAllPositions = new int[count];
+        mResult = new int[count];
+        mScratch = new int[count];
+
+        int gramCount = 0;
+        for (int i = 0; i < count; i++) {
+            mAllPositions[i] = i;
+            mResult[i] = i;
+            mTitles[i] = titles[i] == null
+                    ? "" : titles[i].toString().toLowerCase(Locale.getDefault());
+            gramCount += Math.max(mTitles[i].length() - GRAM_LENGTH + 1, 0);
+        }
+
+        // Every distinct trigram, sorted so they can be looked up by binary search.
+        long[] grams = new long[gramCount];
+        int next = 0;
+        for (String title : mTitles) {
+            for (int j = 0; j + GRAM_LENGTH <= title.length(); j++) grams[next++] = pack(title, j);
+        }
+        Arrays.sort(grams);
+        int distinctCount = 0;
+        for (int i = 0; i < gramCount; i++) {
+            if (i == 0 || grams[i] != grams[i - 1]) grams[distinctCount++] = grams[i];
+        }
+        mGrams = Arrays.copyOf(grams, distinctCount);
+
+        // Size the posting lists first, then fill them. A title can contain the same trigram more
+        // than once, positions are added in increasing order so only the last one is checked.
+        int[] sizes = new int[distinctCount];
+        int[] lastPositions = new int[distinctCount];
+        Arrays.fill(lastPositions, -1);
+        for (int i = 0; i < count; i++) {
+            String title = mTitles[i];
+            for (int j = 0; j + GRAM_LENGTH <= title.length(); j++) {
+                int gram = Arrays.binarySearch(mGrams, pack(title, j));
+                if (lastPositions[gram] == i) continue;
+                lastPositions[gram] = i;
+                sizes[gram]++;
+            }
+        }
+        mPostings = new int[distinctCount][];
+        for (int i = 0; i < distinctCount; i++) {
+            mPostings[i] = new int[sizes[i]];
+            sizes[i] = 0;
+        }
+        for (int i = 0; i < count; i++) {
+            String title = mTitles[i];
+            for (int j = 0; j + GRAM_LENGTH <= title.length(); j++) {
+                int gram = Arrays.binarySearch(mGrams, pack(title, j));
+                int size = sizes[gram];
+                if (size > 0 && mPostings[gram][size - 1] == i) continue;
+                mPostings[gram][size] = i;
+                sizes[gram] = size + 1;
+            }
+        }
+        mResultCount = count;
+    }
+
+    private static long pack(String text, int start) {
+        return ((long) text.charAt(start) << 32)
+                | ((long) text.charAt(start + 1) << 16)
+                | (long) text.charAt(start + 2);
+    }
+
+    /**
+     * Filters the rows with {@code query}. Use {@link #getResult()} and {@link #getResultCount()}
+     * to read the matching rows.
+     *
+     * @param query The text typed by the user.
+     * @return The number of matching rows.
+     */
+    int filter(CharSequence query) {
+        String normalized = query.toString().toLowerCase(Locale.getDefault());
+        if (normalized.equals(mLastQuery)) return mResultCount;
+
+        if (normalized.isEmpty()) {
+            System.arraycopy(mAllPositions, 0, mResult, 0, mAllPositions.length);
+            mResultCount = mAllPositions.length;
+            mLastQuery = normalized;
+            return mResultCount;
+        }
+
+        int[] candidates;
+        int candidateCount;
+        if (!mLastQuery.isEmpty() && normalized.startsWith(mLastQuery)) {
+            // Every match of the new query also matched the previous one.
+            candidates = mResult;
+            candidateCount = mResultCount;
+        } else if (normalized.length() >= GRAM_LENGTH) {
+            candidates = null;
+            for (int i = 0; i + GRAM_LENGTH <= normalized.length(); i++) {
+                int gram = Arrays.binarySearch(mGrams, pack(normalized, i));
+                if (gram < 0) {
+                    // No title contains this trigram, so nothing can match.
+                    candidates = null;
+                    break;
+                }
+                int[] list = mPostings[gram];
+                if (candidates == null || list.length < candidates.length) candidates = list;
+            }
+            candidateCount = candidates == null ? 0 : candidates.length;
+        } else {
+            candidates = mAllPositions;
+            candidateCount = mAllPositions.length;
+        }
+
+        int count = 0;
+        for (int i = 0; i < candidateCount; i++) {
+            int position = candidates[i];
+            if (mTitles[position].contains(normalized)) mScratch[count++] = position;
+        }
+
+        int[] swap = mResult;
+        mResult = mScratch;
+        mScratch = swap;
+        mResultCount = count;
+        mLastQuery = normalized;
+        return count;
+    }
+
+    /**
+     * @return The matching rows in increasing order. Only the first {@link #getResultCount()}
+     * entries are valid. The array is reused by the next {@link #filter(CharSequence)}.
+     */
+    int[] getResult() {
+        return mResult;
+    }
+
+    /**
+     * @return The number of rows matched by the last {@link #filter(CharSequence)}.
+     */
+    int getResultCount() {
+        return mResultCount;
+    }
+
+    /**
+     * @return The last query passed to {@link #filter(CharSequence)}, normalized.
+     */
+    String getLastQuery() {
+        return mLastQuery;
+    }
+}
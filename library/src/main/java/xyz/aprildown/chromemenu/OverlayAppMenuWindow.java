@@ -0,0 +1,299 @@
+package xyz.aprildown.chromemenu;
+
+import android.annotation.SuppressLint;
+import android.content.Context;
+import android.content.res.TypedArray;
+import android.graphics.drawable.Drawable;
+import android.os.Build;
+import android.view.Gravity;
+import android.view.KeyEvent;
+import android.view.MotionEvent;
+import android.view.View;
+import android.view.ViewGroup;
+import android.view.animation.Animation;
+import android.view.animation.AnimationUtils;
+import android.widget.FrameLayout;
+import android.widget.PopupWindow;
+
+/**
+ * Draws the menu inside a {@link FrameLayout} of the activity window, usually its decor view,
+ * instead of adding a window for it. This saves the window manager calls and the surface of a
+ * {@link PopupWindow} on every show.
+ * <p>
+ * It behaves like a focusable {@link PopupWindow}: touches outside the menu dismiss it and don't
+ * reach the views below, the back key dismisses it and key events go to the menu while it's
+ * showing. The window animations of the animation style are run as view animations.
+ */
+final class OverlayAppMenuWindow implements AppMenuWindow {
+    /**
+     * Sorted as {@link Context#obtainStyledAttributes(int, int[])} requires.
+     */
+    private static final int[] ANIMATION_ATTRS =
+            {android.R.attr.windowEnterAnimation, android.R.attr.windowExitAnimation};
+
+    private final Context mContext;
+    private final FrameLayout mHost;
+    private final OverlayContainer mContainer;
+    private final FrameLayout mMenuFrame;
+    private final int[] mHostLocation = new int[2];
+    private final Runnable mRemoveRunnable = new Runnable() {
+        @Override
+        public void run() {
+            mHost.removeView(mContainer);
+        }
+    };
+    private PopupWindow.OnDismissListener mOnDismissListener;
+    private int mEnterAnimation;
+    private int mExitAnimation;
+    private int mWidth = ViewGroup.LayoutParams.WRAP_CONTENT;
+    private int mHeight = ViewGroup.LayoutParams.WRAP_CONTENT;
+    private boolean mIsShowing;
+    private boolean mIsFocusable = true;
+    private View mPreviousFocus;
+    private View.OnTouchListener mTouchInterceptor;
+
+    /**
+     * @param context The context of the menu, used to load its animations.
+     * @param host    The layout the menu is added to. It should fill the window so the menu can be
+     *                placed anywhere in it and all touches outside the menu are caught.
+     */
+    OverlayAppMenuWindow(Context context, FrameLayout host) {
+        mContext = context;
+        mHost = host;
+        mContainer = new OverlayContainer(context);
+        mMenuFrame = new FrameLayout(context);
+        mContainer.addView(mMenuFrame);
+    }
+
+    /**
+     * The menu is drawn in the activity window, which already handles the input method, so this
+     * has no effect.
+     */
+    @Override
+    public void setInputMethodNeeded(boolean needed) {
+    }
+
+    @Override
+    public void setFocusable(boolean focusable) {
+        mIsFocusable = focusable;
+    }
+
+    /**
+     * The container catches every touch of the host while the menu is showing.
+     */
+    @Override
+    public boolean isTouchModal() {
+        return true;
+    }
+
+    @Override
+    public void setTouchInterceptor(View.OnTouchListener interceptor) {
+        mTouchInterceptor = interceptor;
+    }
+
+    @Override
+    public void setOnDismissListener(PopupWindow.OnDismissListener listener) {
+        mOnDismissListener = listener;
+    }
+
+    @Override
+    public Drawable getBackground() {
+        return mMenuFrame.getBackground();
+    }
+
+    @Override
+    public void setBackgroundDrawable(Drawable background) {
+        // Like PopupWindow, the padding of the background insets the content.
+        mMenuFrame.setBackground(background);
+    }
+
+    @Override
+    public void setElevation(float elevation) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
+            mMenuFrame.setElevation(elevation);
+            // Rows are clipped to the rounded corners of the background, as in a PopupWindow.
+            mMenuFrame.setClipToOutline(elevation > 0);
+        }
+    }
+
+    @Override
+    public void setAnimationStyle(int animationStyle) {
+        mEnterAnimation = 0;
+        mExitAnimation = 0;
+        if (animationStyle == 0) return;
+        TypedArray a = mContext.obtainStyledAttributes(animationStyle, ANIMATION_ATTRS);
+        mEnterAnimation = a.getResourceId(0, 0);
+        mExitAnimation = a.getResourceId(1, 0);
+        a.recycle();
+    }
+
+    @Override
+    public void setWidth(int width) {
+        mWidth = width;
+        if (mIsShowing) updateSize(width, -1);
+    }
+
+    @Override
+    public void setHeight(int height) {
+        mHeight = height;
+        if (mIsShowing) updateSize(-1, height);
+    }
+
+    @Override
+    public void setContentView(View contentView) {
+        mMenuFrame.removeAllViews();
+        mMenuFrame.addView(contentView, ViewGroup.LayoutParams.MATCH_PARENT,
+                ViewGroup.LayoutParams.MATCH_PARENT);
+    }
+
+    @Override
+    public View getFrameView() {
+        return mMenuFrame;
+    }
+
+    @Override
+    public void showAtLocation(View parent, int x, int y) {
+        if (mIsShowing) return;
+        mIsShowing = true;
+
+        mMenuFrame.setLayoutParams(
+                new FrameLayout.LayoutParams(mWidth, mHeight, Gravity.TOP | Gravity.LEFT));
+        mHost.addView(mContainer, ViewGroup.LayoutParams.MATCH_PARENT,
+                ViewGroup.LayoutParams.MATCH_PARENT);
+        // The position is in window coordinates, the frame is placed in the host.
+        mHost.getLocationInWindow(mHostLocation);
+        mHostLocation[0] += mHost.getPaddingLeft();
+        mHostLocation[1] += mHost.getPaddingTop();
+        moveTo(x, y);
+
+        if (mIsFocusable) {
+            mPreviousFocus = mHost.findFocus();
+            // The list is focusable in touch mode. Fall back to the container for other contents.
+            if (!mMenuFrame.requestFocus()) mContainer.requestFocus();
+        }
+
+        if (mEnterAnimation != 0) {
+            mMenuFrame.startAnimation(AnimationUtils.loadAnimation(mContext, mEnterAnimation));
+        }
+    }
+
+    @Override
+    public void update(int x, int y, int width, int height) {
+        if (!mIsShowing) return;
+        moveTo(x, y);
+        updateSize(width, height);
+    }
+
+    @Override
+    public void dismiss() {
+        if (!mIsShowing) return;
+        mIsShowing = false;
+
+        if (mPreviousFocus != null && mPreviousFocus.getWindowToken() != null) {
+            mPreviousFocus.requestFocus();
+        }
+        mPreviousFocus = null;
+
+        if (mExitAnimation != 0) {
+            Animation exitAnimation = AnimationUtils.loadAnimation(mContext, mExitAnimation);
+            exitAnimation.setAnimationListener(new Animation.AnimationListener() {
+                @Override
+                public void onAnimationStart(Animation animation) {
+                }
+
+                @Override
+                public void onAnimationEnd(Animation animation) {
+                    // Views can't be removed while their parent is drawing.
+                    mHost.post(mRemoveRunnable);
+                }
+
+                @Override
+                public void onAnimationRepeat(Animation animation) {
+                }
+            });
+            mMenuFrame.startAnimation(exitAnimation);
+        } else {
+            mHost.removeView(mContainer);
+        }
+
+        if (mOnDismissListener != null) mOnDismissListener.onDismiss();
+    }
+
+    @Override
+    public boolean isShowing() {
+        return mIsShowing;
+    }
+
+    /**
+     * Moves the menu with a translation, which doesn't lay it out again.
+     */
+    private void moveTo(int x, int y) {
+        mMenuFrame.setTranslationX(x - mHostLocation[0]);
+        mMenuFrame.setTranslationY(y - mHostLocation[1]);
+    }
+
+    private void updateSize(int width, int height) {
+        if (width == -1 && height == -1) return;
+        ViewGroup.LayoutParams params = mMenuFrame.getLayoutParams();
+        if (width != -1) params.width = mWidth = width;
+        if (height != -1) params.height = mHeight = height;
+        mMenuFrame.setLayoutParams(params);
+    }
+
+    /**
+     * Fills the host to catch the touches and the back key outside the menu.
+     */
+    private final class OverlayContainer extends FrameLayout {
+        private final int[] mFrameLocation = new int[2];
+
+        OverlayContainer(Context context) {
+            super(context);
+            setFocusable(true);
+            setFocusableInTouchMode(true);
+        }
+
+        @Override
+        public boolean dispatchKeyEvent(KeyEvent event) {
+            if (event.getKeyCode() != KeyEvent.KEYCODE_BACK || !mIsShowing) {
+                return super.dispatchKeyEvent(event);
+            }
+            if (event.getAction() == KeyEvent.ACTION_DOWN && event.getRepeatCount() == 0) {
+                getKeyDispatcherState().startTracking(event, this);
+                return true;
+            }
+            if (event.getAction() == KeyEvent.ACTION_UP) {
+                getKeyDispatcherState().handleUpEvent(event);
+                if (event.isTracking() && !event.isCanceled()) {
+                    dismiss();
+                    return true;
+                }
+            }
+            return super.dispatchKeyEvent(event);
+        }
+
+        @Override
+        public boolean dispatchTouchEvent(MotionEvent event) {
+            // Let the touches through while the menu animates out.
+            if (!mIsShowing) return false;
+            if (mTouchInterceptor != null && mTouchInterceptor.onTouch(this, event)) return true;
+            return super.dispatchTouchEvent(event);
+        }
+
+        @SuppressLint("ClickableViewAccessibility")
+        @Override
+        public boolean onTouchEvent(MotionEvent event) {
+            if (event.getActionMasked() == MotionEvent.ACTION_DOWN && !isInMenu(event)) {
+                dismiss();
+            }
+            // Nothing below the menu receives touches while it's showing.
+            return true;
+        }
+
+        private boolean isInMenu(MotionEvent event) {
+            mMenuFrame.getLocationOnScreen(mFrameLocation);
+            float x = event.getRawX() - mFrameLocation[0];
+            float y = event.getRawY() - mFrameLocation[1];
+            return x >= 0 && y >= 0 && x < mMenuFrame.getWidth() && y < mMenuFrame.getHeight();
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package xyz.aprildown.chromemenu;
+
+import android.graphics.drawable.Drawable;
+
+import java.util.List;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.WorkerThread;
+
+/**
+ * A section of the App Menu whose rows are loaded page by page instead of being added to the
+ * {@link android.view.Menu} up front. Useful for long dynamic lists such as recent files or
+ * accounts.
+ * <p>
+ * A section replaces a regular item of the menu, its anchor, see
+ * {@link AppMenuHandler#addPagedSection(int, PagedMenuSection)}. Pages are requested on a
+ * background thread as the list scrolls towards them, rows show a placeholder until their page
+ * arrives, and pages far away from the visible rows are dropped.
+ */
+public abstract class PagedMenuSection {
+    private static final int DEFAULT_PAGE_SIZE = 20;
+
+    /**
+     * @return The number of rows in this section. Called on the UI thread when the menu is shown
+     * or refreshed.
+     */
+    public abstract int getCount();
+
+    /**
+     * @return The number of rows loaded by a single {@link #loadPage(int, int)} call.
+     */
+    public int getPageSize() {
+        return DEFAULT_PAGE_SIZE;
+    }
+
+    /**
+     * Loads a page of rows. Called on a background thread.
+     *
+     * @param offset The position of the first row to load.
+     * @param count  The number of rows to load.
+     * @return The loaded rows. Missing rows keep showing a placeholder. If this throws, the rows
+     * of the page keep showing placeholders until the menu is shown again or the section
+     * changes.
+     */
+    @WorkerThread
+    @NonNull
+    public abstract List<Entry> loadPage(int offset, int count);
+
+    /**
+     * Handles a click on a loaded row. Called on the UI thread after the menu is dismissed.
+     *
+     * @param position The position of the row in this section.
+     * @param entry    The clicked row.
+     */
+    public abstract void onEntryClicked(int position, @NonNull Entry entry);
+
+    /**
+     * A row of a {@link PagedMenuSection}.
+     */
+    public static final class Entry {
+        private final CharSequence mTitle;
+        private final Drawable mIcon;
+
+        /**
+         * @param title The title of the row.
+         * @param icon  The icon shown at the end of the row, if any.
+         */
+        public Entry(@NonNull CharSequence title, @Nullable Drawable icon) {
+            mTitle = title;
+            mIcon = icon;
+        }
+
+        @NonNull
+        public CharSequence getTitle() {
+            return mTitle;
+        }
+
+        @Nullable
+        public Drawable getIcon() {
+            return mIcon;
+        }
+    }
+}
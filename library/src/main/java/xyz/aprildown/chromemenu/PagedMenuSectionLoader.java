@@ -0,0 +1,150 @@
+package xyz.aprildown.chromemenu;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+import android.util.SparseArray;
+import android.util.SparseBooleanArray;
+
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Loads the pages of a {@link PagedMenuSection} for one showing of the App Menu. Pages are loaded
+ * in order on a shared background thread, and only the pages around the last requested row are
+ * kept in memory. A page that fails to load isn't requested again while the menu is showing, its
+ * rows stay placeholders.
+ */
+class PagedMenuSectionLoader {
+    private static final String TAG = "PagedMenuSection";
+
+    private static Executor sExecutor;
+
+    private final PagedMenuSection mSection;
+    private final int mCount;
+    private final int mPageSize;
+    private final int mMaxCachedPages;
+    private final Runnable mOnPageLoaded;
+    private final Handler mUiHandler = new Handler(Looper.getMainLooper());
+    private final SparseArray<List<PagedMenuSection.Entry>> mPages = new SparseArray<>();
+    private final SparseBooleanArray mLoadingPages = new SparseBooleanArray();
+    private final SparseBooleanArray mFailedPages = new SparseBooleanArray();
+    private boolean mDestroyed;
+
+    /**
+     * @param section        The section to load.
+     * @param maxCachedPages The maximum number of pages kept in memory.
+     * @param onPageLoaded   Run on the UI thread every time a page arrives.
+     */
+    PagedMenuSectionLoader(PagedMenuSection section, int maxCachedPages, Runnable onPageLoaded) {
+        mSection = section;
+        mCount = Math.max(0, section.getCount());
+        mPageSize = Math.max(1, section.getPageSize());
+        // Keep at least the current page and one neighbour for prefetching.
+        mMaxCachedPages = Math.max(2, maxCachedPages);
+        mOnPageLoaded = onPageLoaded;
+    }
+
+    private static synchronized Executor getExecutor() {
+        if (sExecutor == null) {
+            sExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable r) {
+                    Thread thread = new Thread(r, "AppMenuPageLoader");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+        return sExecutor;
+    }
+
+    PagedMenuSection getSection() {
+        return mSection;
+    }
+
+    /**
+     * @return The number of rows in the section when the menu was shown.
+     */
+    int getCount() {
+        return mCount;
+    }
+
+    /**
+     * Returns a row and requests its page, and the neighbouring page the list is approaching, if
+     * they aren't loaded yet.
+     *
+     * @param position The position of the row in the section.
+     * @return The row, or {@code null} if its page hasn't arrived yet.
+     */
+    PagedMenuSection.Entry getEntry(int position) {
+        int page = position / mPageSize;
+        int positionInPage = position % mPageSize;
+
+        evictPagesAround(page);
+        requestPage(page);
+        requestPage(positionInPage < mPageSize / 2 ? page - 1 : page + 1);
+
+        List<PagedMenuSection.Entry> entries = mPages.get(page);
+        if (entries == null || positionInPage >= entries.size()) return null;
+        return entries.get(positionInPage);
+    }
+
+    /**
+     * Drops the loaded pages and ignores the pages still being loaded.
+     */
+    void destroy() {
+        mDestroyed = true;
+        mPages.clear();
+        mUiHandler.removeCallbacksAndMessages(null);
+    }
+
+    private void requestPage(final int page) {
+        final int offset = page * mPageSize;
+        if (page < 0 || offset >= mCount) return;
+        if (mPages.get(page) != null || mLoadingPages.get(page) || mFailedPages.get(page)) return;
+
+        mLoadingPages.put(page, true);
+        final int count = Math.min(mPageSize, mCount - offset);
+        getExecutor().execute(new Runnable() {
+            @Override
+            public void run() {
+                List<PagedMenuSection.Entry> entries = null;
+                try {
+                    entries = mSection.loadPage(offset, count);
+                } catch (RuntimeException e) {
+                    Log.w(TAG, "Failed to load page " + page, e);
+                }
+                final List<PagedMenuSection.Entry> result = entries;
+                mUiHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        onPageLoaded(page, result);
+                    }
+                });
+            }
+        });
+    }
+
+    private void onPageLoaded(int page, List<PagedMenuSection.Entry> entries) {
+        mLoadingPages.delete(page);
+        if (mDestroyed) return;
+        if (entries == null) {
+            // Binding its rows again, as auto-scroll does, would otherwise retry it every time.
+            mFailedPages.put(page, true);
+            return;
+        }
+
+        mPages.put(page, entries);
+        mOnPageLoaded.run();
+    }
+
+    private void evictPagesAround(int page) {
+        int maxDistance = mMaxCachedPages / 2;
+        for (int i = mPages.size() - 1; i >= 0; i--) {
+            if (Math.abs(mPages.keyAt(i) - page) > maxDistance) mPages.removeAt(i);
+        }
+    }
+}
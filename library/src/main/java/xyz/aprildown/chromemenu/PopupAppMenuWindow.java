@@ -0,0 +1,123 @@
+package xyz.aprildown.chromemenu;
+
+import android.content.Context;
+import android.graphics.drawable.Drawable;
+import android.os.Build;
+import android.view.Gravity;
+import android.view.View;
+import android.view.WindowManager;
+import android.widget.PopupWindow;
+
+/**
+ * Shows the menu in a {@link PopupWindow}, a window of its own above the activity.
+ */
+final class PopupAppMenuWindow implements AppMenuWindow {
+    private final PopupWindow mPopup;
+
+    PopupAppMenuWindow(Context context) {
+        mPopup = new PopupWindow(context);
+
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) {
+            // The window layout type affects the z-index of the popup window on M+.
+            mPopup.setWindowLayoutType(WindowManager.LayoutParams.TYPE_APPLICATION_SUB_PANEL);
+        }
+    }
+
+    @Override
+    public void setInputMethodNeeded(boolean needed) {
+        mPopup.setInputMethodMode(needed
+                ? PopupWindow.INPUT_METHOD_NEEDED : PopupWindow.INPUT_METHOD_NOT_NEEDED);
+    }
+
+    @Override
+    public void setFocusable(boolean focusable) {
+        mPopup.setFocusable(focusable);
+        // A focusable popup catches outside touches as the window with focus. Otherwise it needs
+        // to watch them to dismiss itself.
+        mPopup.setOutsideTouchable(!focusable);
+    }
+
+    /**
+     * A popup without focus isn't touch modal: a touch outside it is delivered to the popup as
+     * {@link android.view.MotionEvent#ACTION_OUTSIDE} and to the activity below as well.
+     */
+    @Override
+    public boolean isTouchModal() {
+        return mPopup.isFocusable();
+    }
+
+    @Override
+    public void setTouchInterceptor(View.OnTouchListener interceptor) {
+        mPopup.setTouchInterceptor(interceptor);
+    }
+
+    @Override
+    public void setOnDismissListener(PopupWindow.OnDismissListener listener) {
+        mPopup.setOnDismissListener(listener);
+    }
+
+    @Override
+    public Drawable getBackground() {
+        return mPopup.getBackground();
+    }
+
+    @Override
+    public void setBackgroundDrawable(Drawable background) {
+        mPopup.setBackgroundDrawable(background);
+    }
+
+    @Override
+    public void setElevation(float elevation) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
+            mPopup.setElevation(elevation);
+        }
+    }
+
+    @Override
+    public void setAnimationStyle(int animationStyle) {
+        mPopup.setAnimationStyle(animationStyle);
+    }
+
+    @Override
+    public void setWidth(int width) {
+        mPopup.setWidth(width);
+    }
+
+    @Override
+    public void setHeight(int height) {
+        mPopup.setHeight(height);
+    }
+
+    @Override
+    public void setContentView(View contentView) {
+        mPopup.setContentView(contentView);
+    }
+
+    /**
+     * The root of the popup window draws its background and, from its elevation, its shadow.
+     */
+    @Override
+    public View getFrameView() {
+        return mPopup.getContentView().getRootView();
+    }
+
+    @Override
+    public void showAtLocation(View parent, int x, int y) {
+        mPopup.showAtLocation(parent.getRootView(), Gravity.NO_GRAVITY, x, y);
+    }
+
+    @Override
+    public void update(int x, int y, int width, int height) {
+        mPopup.update(x, y, width, height);
+    }
+
+    @Override
+    public void dismiss() {
+        mPopup.dismiss();
+    }
+
+    @Override
+    public boolean isShowing() {
+        return mPopup.isShowing();
+    }
+}
@@ -23,7 +23,7 @@ import androidx.interpolator.view.animation.FastOutSlowInInterpolator;
  */
 class PulseDrawable extends Drawable implements Animatable {
     private static final long PULSE_DURATION_MS = 2500;
-    private static final long FRAME_RATE = 60;
+    private static final int DEFAULT_FRAME_RATE = 60;
     private final Paint mPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
     private final Rect mInset = new Rect();
     private final Rect mOriginalBounds = new Rect();
@@ -31,11 +31,12 @@ class PulseDrawable extends Drawable implements Animatable {
     private PulseState mState;
     private boolean mMutated;
     private boolean mRunning;
+    private int mFrameRate = DEFAULT_FRAME_RATE;
     private final Runnable mNextFrame = new Runnable() {
         @Override
         public void run() {
             stepPulse();
-            if (mRunning) scheduleSelf(mNextFrame, SystemClock.uptimeMillis() + 1000 / FRAME_RATE);
+            if (mRunning) scheduleNextFrame();
         }
     };
 
@@ -133,12 +134,25 @@ class PulseDrawable extends Drawable implements Animatable {
         return (value + (target - value) * speed);
     }
 
+    /**
+     * @param framesPerSecond How often the pulse is redrawn. 0 draws a single frame, which shows a
+     *                        still highlight.
+     */
+    void setFrameRate(int framesPerSecond) {
+        mFrameRate = Math.max(0, framesPerSecond);
+    }
+
+    private void scheduleNextFrame() {
+        if (mFrameRate == 0) return;
+        scheduleSelf(mNextFrame, SystemClock.uptimeMillis() + 1000 / mFrameRate);
+    }
+
     // Animatable implementation.
     @Override
     public void start() {
         if (mRunning) {
             unscheduleSelf(mNextFrame);
-            scheduleSelf(mNextFrame, SystemClock.uptimeMillis() + 1000 / FRAME_RATE);
+            scheduleNextFrame();
         } else {
             mRunning = true;
             if (mState.startTime == 0) mState.startTime = SystemClock.uptimeMillis();
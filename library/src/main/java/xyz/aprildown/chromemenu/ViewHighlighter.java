@@ -10,10 +10,11 @@ class ViewHighlighter {
     /**
      * Create a highlight layer over the view.
      *
-     * @param view     The view to be highlighted.
-     * @param circular Whether the highlight should be a circle or rectangle.
+     * @param view           The view to be highlighted.
+     * @param circular       Whether the highlight should be a circle or rectangle.
+     * @param pulseFrameRate The frame rate of the pulse. 0 shows a still highlight.
      */
-    static void turnOnHighlight(View view, boolean circular) {
+    static void turnOnHighlight(View view, boolean circular, int pulseFrameRate) {
         if (view == null) return;
         final Context context = view.getContext();
 
@@ -23,6 +24,7 @@ class ViewHighlighter {
         PulseDrawable pulseDrawable = circular
                 ? PulseDrawable.createCircle(context)
                 : PulseDrawable.createHighlight(context);
+        pulseDrawable.setFrameRate(pulseFrameRate);
 
         Resources resources = context.getResources();
         Drawable background = view.getBackground();
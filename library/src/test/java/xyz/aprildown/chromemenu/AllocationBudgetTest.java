@@ -0,0 +1,178 @@
+package xyz.aprildown.chromemenu;
+
+import android.view.MotionEvent;
+import android.view.View;
+import android.widget.ListAdapter;
+import android.widget.ListView;
+
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.annotation.Config;
+import org.robolectric.annotation.LooperMode;
+
+import java.io.IOException;
+import java.util.Collections;
+
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Fails when the hot paths of the menu allocate more than their budget. Only allocations made by
+ * library code are counted, see {@link AllocationCounter}.
+ * <p>
+ * Dragging, auto-scrolling and rebinding rows happen many times per second and must not allocate
+ * at all. Showing the menu builds its views and is only checked against a ceiling that catches
+ * allocations growing with the number of rows.
+ * <p>
+ * Run by the {@code allocationBudgetTest} Gradle task, which loads the allocation instrumenter.
+ * The count and budget of every path are written to {@code allocations.json}, see
+ * {@link MenuBenchmarkReport}.
+ */
+@RunWith(AllocationTestRunner.class)
+@LooperMode(LooperMode.Mode.PAUSED)
+@Config(sdk = 28)
+public class AllocationBudgetTest {
+    private static final int MOVE_EVENT_BUDGET = 0;
+    private static final int AUTO_SCROLL_FRAME_BUDGET = 0;
+    private static final int ROW_REBIND_BUDGET = 0;
+    private static final int SHOW_BUDGET = 500;
+
+    private static final MenuShape LONG_MENU = new MenuShape("long", 60, 1, false, false);
+    private static final MenuShape MIXED_MENU = new MenuShape("mixed", 8, 2, true, true);
+    /**
+     * Events and frames run before counting, so that rows scrolled in for the first time have
+     * been created and lazily initialized state exists.
+     */
+    private static final int WARM_UP_STEPS = 10;
+    private static final int MEASURED_STEPS = 20;
+
+    private static final MenuBenchmarkReport sReport = new MenuBenchmarkReport();
+
+    private AllocationCounter mCounter;
+
+    @Before
+    public void setUp() {
+        if (!AllocationCounter.isAgentLoaded()) {
+            if (Boolean.getBoolean(AllocationCounter.REQUIRE_AGENT_PROPERTY)) {
+                fail("The allocation instrumenter agent isn't loaded");
+            }
+            Assume.assumeTrue("The allocation instrumenter agent isn't loaded", false);
+        }
+        mCounter = new AllocationCounter();
+    }
+
+    @After
+    public void tearDown() {
+        if (mCounter != null) mCounter.release();
+    }
+
+    @AfterClass
+    public static void writeReport() throws IOException {
+        sReport.write("allocations.json");
+    }
+
+    @Test
+    public void moveEvent() {
+        MenuTestHarness harness = new MenuTestHarness(LONG_MENU);
+        harness.touchDown();
+        ListView listView = harness.getListView();
+        float x = getCenterX(listView);
+        float top = getScreenTop(listView) + 1;
+        // Stay away from the auto-scroll areas at the top and bottom of the list.
+        float range = listView.getHeight() / 2f;
+
+        int allocations = 0;
+        for (int i = 0; i < WARM_UP_STEPS + MEASURED_STEPS; i++) {
+            harness.advanceFrames(1);
+            float y = top + range / 4 + range * (i % MEASURED_STEPS) / MEASURED_STEPS;
+            if (i >= WARM_UP_STEPS) mCounter.start();
+            harness.dispatchTouch(MotionEvent.ACTION_MOVE, x, y);
+            allocations += mCounter.stop();
+        }
+        assertWithinBudget("MOVE event", allocations, MOVE_EVENT_BUDGET * MEASURED_STEPS);
+    }
+
+    @Test
+    public void autoScrollFrame() {
+        MenuTestHarness harness = new MenuTestHarness(LONG_MENU);
+        harness.touchDown();
+        ListView listView = harness.getListView();
+        float x = getCenterX(listView);
+        float y = getScreenTop(listView) + listView.getHeight() - 1;
+        harness.dispatchTouch(MotionEvent.ACTION_MOVE, x, y);
+        harness.advanceFrames(WARM_UP_STEPS);
+
+        int scrolledFrames = harness.getTraceSectionCount(AppMenuTrace.AUTO_SCROLL_FRAME);
+        mCounter.start();
+        harness.advanceFrames(MEASURED_STEPS);
+        int allocations = mCounter.stop();
+        assertTrue("The list didn't auto-scroll",
+                harness.getTraceSectionCount(AppMenuTrace.AUTO_SCROLL_FRAME) > scrolledFrames);
+        assertWithinBudget(
+                "auto-scroll frame", allocations, AUTO_SCROLL_FRAME_BUDGET * MEASURED_STEPS);
+    }
+
+    @Test
+    public void rowRebind() {
+        MenuTestHarness harness = new MenuTestHarness(MIXED_MENU);
+        harness.show();
+        ListView listView = harness.getListView();
+        ListAdapter adapter = listView.getAdapter();
+        int rebinds = 0;
+        int allocations = 0;
+        for (int pass = 0; pass < 2; pass++) {
+            // The first pass warms up.
+            if (pass == 1) mCounter.start();
+            for (int i = 0; i < listView.getChildCount(); i++) {
+                View row = listView.getChildAt(i);
+                int position = listView.getFirstVisiblePosition() + i;
+                // Skip the header, it isn't bound by the adapter of the menu.
+                if (position < listView.getHeaderViewsCount()) continue;
+                adapter.getView(position, row, listView);
+                if (pass == 1) rebinds++;
+            }
+            if (pass == 1) allocations = mCounter.stop();
+        }
+        assertTrue("No rows were rebound", rebinds > 0);
+        assertWithinBudget("row rebind", allocations, ROW_REBIND_BUDGET * rebinds);
+    }
+
+    @Test
+    public void show() {
+        MenuTestHarness harness = new MenuTestHarness(MIXED_MENU);
+        harness.show();
+        harness.hide();
+
+        mCounter.start();
+        harness.show();
+        int allocations = mCounter.stop();
+        assertWithinBudget("show", allocations, SHOW_BUDGET);
+    }
+
+    private void assertWithinBudget(String path, int allocations, int budget) {
+        MenuBenchmarkReport.Run run = new MenuBenchmarkReport.Run();
+        run.put("allocations", allocations);
+        run.put("budget", budget);
+        sReport.add("allocation budget", path, Collections.singletonList(run));
+        if (allocations > budget) {
+            fail(path + " allocated " + allocations + " objects, the budget is " + budget
+                    + ". First allocations:" + mCounter.describeSites());
+        }
+    }
+
+    private static float getCenterX(View view) {
+        int[] location = new int[2];
+        view.getLocationOnScreen(location);
+        return location[0] + view.getWidth() / 2f;
+    }
+
+    private static float getScreenTop(View view) {
+        int[] location = new int[2];
+        view.getLocationOnScreen(location);
+        return location[1];
+    }
+}
@@ -0,0 +1,152 @@
+package xyz.aprildown.chromemenu;
+
+import com.google.monitoring.runtime.instrumentation.AllocationRecorder;
+import com.google.monitoring.runtime.instrumentation.Sampler;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Counts the objects allocated by the library while armed, using the allocation instrumenter
+ * agent that the {@code allocationBudgetTest} Gradle task loads.
+ * <p>
+ * An allocation belongs to the library if a library class is on its stack above the first test
+ * class. This includes what the framework allocates when the library calls it, and leaves out
+ * what the framework or the tests allocate on their own, such as while dispatching to the
+ * library. Allocations made inside Robolectric, such as by shadows or the code that dispatches to
+ * them, aren't counted either, since they don't happen on a device.
+ */
+final class AllocationCounter {
+    /**
+     * Set by the {@code allocationBudgetTest} Gradle task. When set, a missing agent fails the
+     * tests instead of skipping them.
+     */
+    static final String REQUIRE_AGENT_PROPERTY = "chromemenu.requireAllocationAgent";
+
+    private static final String LIBRARY_PACKAGE = "xyz.aprildown.chromemenu.";
+    private static final String INSTRUMENTER_PACKAGE = "com.google.monitoring.runtime.";
+    private static final String ROBOLECTRIC_PACKAGE = "org.robolectric.";
+    private static final String[] TEST_CLASSES = {
+            AllocationCounter.class.getName(), AllocationBudgetTest.class.getName(),
+            MenuTestHarness.class.getName(), MenuShape.class.getName(),
+    };
+    private static final int MAX_RECORDED_SITES = 20;
+
+    private final List<String> mSites = new ArrayList<>();
+    private boolean mArmed;
+    private int mCount;
+
+    private final Sampler mSampler = new Sampler() {
+        @Override
+        public void sampleAllocation(int count, String desc, Object newObj, long size) {
+            if (!mArmed) return;
+            StackTraceElement[] stack = new Throwable().getStackTrace();
+            StackTraceElement caller = findLibraryCaller(stack);
+            if (caller == null) return;
+            mCount++;
+            if (mSites.size() < MAX_RECORDED_SITES) {
+                StackTraceElement site = findAllocationSite(stack);
+                mSites.add(desc + " at " + site + (site == caller ? "" : " from " + caller));
+            }
+        }
+    };
+
+    /**
+     * @return Whether allocations are being instrumented.
+     */
+    static boolean isAgentLoaded() {
+        final boolean[] sampled = new boolean[1];
+        Sampler probe = new Sampler() {
+            @Override
+            public void sampleAllocation(int count, String desc, Object newObj, long size) {
+                sampled[0] = true;
+            }
+        };
+        AllocationRecorder.addSampler(probe);
+        try {
+            Object[] allocation = new Object[1];
+            allocation[0] = allocation;
+        } finally {
+            AllocationRecorder.removeSampler(probe);
+        }
+        return sampled[0];
+    }
+
+    AllocationCounter() {
+        AllocationRecorder.addSampler(mSampler);
+    }
+
+    /**
+     * Starts counting from zero.
+     */
+    void start() {
+        mCount = 0;
+        mSites.clear();
+        mArmed = true;
+    }
+
+    /**
+     * Stops counting.
+     *
+     * @return The number of library allocations since {@link #start()}.
+     */
+    int stop() {
+        mArmed = false;
+        return mCount;
+    }
+
+    /**
+     * @return Where the first allocations counted happened, for failure messages.
+     */
+    String describeSites() {
+        StringBuilder builder = new StringBuilder();
+        for (String site : mSites) builder.append("\n    ").append(site);
+        return builder.toString();
+    }
+
+    void release() {
+        mArmed = false;
+        AllocationRecorder.removeSampler(mSampler);
+    }
+
+    /**
+     * @return The first frame outside the JDK and the instrumenter, where the object was
+     * allocated.
+     */
+    private static StackTraceElement findAllocationSite(StackTraceElement[] stack) {
+        for (StackTraceElement frame : stack) {
+            if (!isInstrumentationOrJdkClass(frame.getClassName())) return frame;
+        }
+        return null;
+    }
+
+    /**
+     * @return The innermost library frame of {@code stack} called by the tests, or {@code null}
+     * if the allocation wasn't caused by the library or was made inside Robolectric.
+     */
+    private static StackTraceElement findLibraryCaller(StackTraceElement[] stack) {
+        for (StackTraceElement frame : stack) {
+            String className = frame.getClassName();
+            if (isInstrumentationOrJdkClass(className)) continue;
+            if (isTestClass(className) || className.startsWith(ROBOLECTRIC_PACKAGE)) return null;
+            if (className.startsWith(LIBRARY_PACKAGE)) return frame;
+        }
+        return null;
+    }
+
+    private static boolean isInstrumentationOrJdkClass(String className) {
+        return className.startsWith(INSTRUMENTER_PACKAGE)
+                || className.startsWith(AllocationCounter.class.getName())
+                || className.startsWith("java.") || className.startsWith("javax.")
+                || className.startsWith("sun.") || className.startsWith("jdk.");
+    }
+
+    private static boolean isTestClass(String className) {
+        for (String testClass : TEST_CLASSES) {
+            if (className.equals(testClass) || className.startsWith(testClass + "$")) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,26 @@
+package xyz.aprildown.chromemenu;
+
+import org.junit.runners.model.FrameworkMethod;
+import org.junit.runners.model.InitializationError;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.internal.bytecode.InstrumentationConfiguration;
+
+/**
+ * Runs {@link AllocationBudgetTest} with the classes of the allocation instrumenter shared with
+ * the system class loader. The agent reports to the {@code AllocationRecorder} loaded by the
+ * system class loader, so a copy loaded by the Robolectric sandbox would never see a sample.
+ */
+public class AllocationTestRunner extends RobolectricTestRunner {
+    private static final String INSTRUMENTER_PACKAGE = "com.google.monitoring.";
+
+    public AllocationTestRunner(Class<?> testClass) throws InitializationError {
+        super(testClass);
+    }
+
+    @Override
+    protected InstrumentationConfiguration createClassLoaderConfig(FrameworkMethod method) {
+        return new InstrumentationConfiguration.Builder(super.createClassLoaderConfig(method))
+                .doNotAcquirePackage(INSTRUMENTER_PACKAGE)
+                .build();
+    }
+}
@@ -0,0 +1,139 @@
+package xyz.aprildown.chromemenu;
+
+import android.os.SystemClock;
+import android.view.MotionEvent;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.annotation.LooperMode;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Replays recorded drag gestures against a long menu and writes the CPU time of every event, the
+ * highlight changes and the auto-scroll frames of every gesture to {@code replay.json}, see
+ * {@link MenuBenchmarkReport}.
+ * <p>
+ * Recordings saved by {@link AppMenuGestureRecorder} as {@code .gestures} files are read from the
+ * directory in the {@value #GESTURE_DIR_PROPERTY} system property, or from
+ * {@code src/test/resources/gestures}.
+ * A synthetic drag is always replayed too.
+ */
+@RunWith(RobolectricTestRunner.class)
+@LooperMode(LooperMode.Mode.PAUSED)
+@Config(sdk = 28)
+public class GestureReplayTest {
+    static final String GESTURE_DIR_PROPERTY = "chromemenu.gestureDir";
+
+    private static final String DEFAULT_GESTURE_DIR = "src/test/resources/gestures";
+    private static final String GESTURE_FILE_EXTENSION = ".gestures";
+    private static final MenuShape SHAPE = new MenuShape("long", 60, 1, true, false);
+
+    @Test
+    public void replay() throws IOException {
+        Map<String, AppMenuGestureRecording> recordings = new LinkedHashMap<>();
+        recordings.put("synthetic", createSyntheticRecording());
+        File[] files = new File(System.getProperty(GESTURE_DIR_PROPERTY, DEFAULT_GESTURE_DIR))
+                .listFiles();
+        if (files != null) {
+            Arrays.sort(files);
+            for (File file : files) {
+                if (!file.getName().endsWith(GESTURE_FILE_EXTENSION)) continue;
+                FileInputStream input = new FileInputStream(file);
+                try {
+                    recordings.put(file.getName(), AppMenuGestureRecording.read(input));
+                } finally {
+                    input.close();
+                }
+            }
+        }
+
+        MenuBenchmarkReport report = new MenuBenchmarkReport();
+        for (Map.Entry<String, AppMenuGestureRecording> recording : recordings.entrySet()) {
+            MenuTestHarness harness = new MenuTestHarness(SHAPE);
+            GestureReplayer replayer = new GestureReplayer(harness);
+            for (int i = 0; i < recording.getValue().getGestureCount(); i++) {
+                GestureReplayer.Result result = replayer.replay(recording.getValue(), i);
+                report.add(recording.getKey() + "#" + i, "replay", toRuns(result));
+            }
+        }
+        report.write("replay.json");
+    }
+
+    /**
+     * Records a drag from the anchor down the menu and back up with
+     * {@link AppMenuGestureRecorder}, and reads it back from its file format.
+     */
+    private static AppMenuGestureRecording createSyntheticRecording() throws IOException {
+        MenuTestHarness harness = new MenuTestHarness(SHAPE);
+        AppMenuGestureRecorder recorder = new AppMenuGestureRecorder();
+        int size = harness.getAnchor().getWidth();
+        long downTime = SystemClock.uptimeMillis();
+
+        MotionEvent event = MotionEvent.obtain(
+                downTime, downTime, MotionEvent.ACTION_DOWN, size / 2f, size / 2f, 0);
+        recorder.onTouchEvent(harness.getAnchor(), event);
+        event.recycle();
+        int moves = 60;
+        for (int i = 1; i <= moves; i++) {
+            // Down the menu for the first two thirds, then back up, with one batched sample.
+            float progress = i <= moves * 2 / 3 ? i / (moves * 2 / 3f) : (moves - i) / 20f;
+            float y = size / 2f + progress * size * 10;
+            long time = downTime + i * MenuTestHarness.FRAME_MS;
+            event = MotionEvent.obtain(downTime, time - MenuTestHarness.FRAME_MS / 2,
+                    MotionEvent.ACTION_MOVE, -size / 2f, y - 4, 0);
+            event.addBatch(time, -size / 2f, y, 1f, 1f, 0);
+            recorder.onTouchEvent(harness.getAnchor(), event);
+            event.recycle();
+        }
+        event = MotionEvent.obtain(downTime, downTime + (moves + 1) * MenuTestHarness.FRAME_MS,
+                MotionEvent.ACTION_UP, -size / 2f, size * 3f, 0);
+        recorder.onTouchEvent(harness.getAnchor(), event);
+        event.recycle();
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        recorder.getRecording().write(output);
+        AppMenuGestureRecording recording =
+                AppMenuGestureRecording.read(new ByteArrayInputStream(output.toByteArray()));
+        assertEquals(1, recording.getGestureCount());
+        assertEquals(moves + 2, recording.getGesture(0).getEventCount());
+        return recording;
+    }
+
+    private static List<MenuBenchmarkReport.Run> toRuns(GestureReplayer.Result result) {
+        long[] sortedCpuTimes = result.eventCpuTimeNanos.clone();
+        Arrays.sort(sortedCpuTimes);
+        long totalCpuTime = 0;
+        for (long cpuTime : sortedCpuTimes) totalCpuTime += cpuTime;
+        long highlightChanges = 0;
+        for (long changes : result.eventHighlightChanges) highlightChanges += changes;
+
+        MenuBenchmarkReport.Run run = new MenuBenchmarkReport.Run();
+        int count = sortedCpuTimes.length;
+        run.put("events", count);
+        run.put("cpuTimeNanos", totalCpuTime);
+        run.put("eventCpuTimeNanosP50", count == 0 ? 0 : sortedCpuTimes[count / 2]);
+        run.put("eventCpuTimeNanosP90", count == 0 ? 0 : sortedCpuTimes[count * 9 / 10]);
+        run.put("eventCpuTimeNanosMax", count == 0 ? 0 : sortedCpuTimes[count - 1]);
+        run.put("highlightChanges", highlightChanges);
+        run.put("autoScrollFrames", result.autoScrollFrames);
+        run.putSeries("eventCpuTimeNanos", result.eventCpuTimeNanos);
+        run.putSeries("eventHighlightChanges", result.eventHighlightChanges);
+        List<MenuBenchmarkReport.Run> runs = new ArrayList<>();
+        runs.add(run);
+        return runs;
+    }
+}
@@ -0,0 +1,83 @@
+package xyz.aprildown.chromemenu;
+
+import android.os.SystemClock;
+import android.view.MotionEvent;
+
+/**
+ * Feeds recorded gestures back to the menu button of a {@link MenuTestHarness}, through
+ * {@link AppMenuButtonHelper} and {@link AppMenuDragHelper#handleDragging}, at their recorded
+ * pace. Positions are scaled from the density of the recording to the density of the harness.
+ */
+final class GestureReplayer {
+    private final MenuTestHarness mHarness;
+
+    /**
+     * What happened while replaying a gesture.
+     */
+    static final class Result {
+        /**
+         * The CPU time taken by every event, in nanoseconds.
+         */
+        final long[] eventCpuTimeNanos;
+        /**
+         * The number of highlight changes caused by every event.
+         */
+        final long[] eventHighlightChanges;
+        int autoScrollFrames;
+
+        Result(int eventCount) {
+            eventCpuTimeNanos = new long[eventCount];
+            eventHighlightChanges = new long[eventCount];
+        }
+    }
+
+    GestureReplayer(MenuTestHarness harness) {
+        mHarness = harness;
+    }
+
+    /**
+     * Replays a gesture, then runs one more frame so a selection is dispatched.
+     */
+    Result replay(AppMenuGestureRecording recording, int gestureIndex) {
+        AppMenuGestureRecording.Gesture gesture = recording.getGesture(gestureIndex);
+        float scale = mHarness.getDensity() / recording.getDensity();
+        int[] anchorLocation = new int[2];
+        mHarness.getAnchor().getLocationOnScreen(anchorLocation);
+
+        Result result = new Result(gesture.getEventCount());
+        mHarness.resetCounters();
+        long downTime = SystemClock.uptimeMillis();
+        for (int i = 0; i < gesture.getEventCount(); i++) {
+            int start = gesture.getSampleStart(i);
+            int last = start + gesture.getSampleCount(i) - 1;
+
+            // Let the frames between the previous event and this one run.
+            long delay = downTime + gesture.getSampleTimeMs(last) - SystemClock.uptimeMillis();
+            if (delay > 0) mHarness.advanceTime(delay);
+
+            MotionEvent event = MotionEvent.obtain(downTime,
+                    downTime + gesture.getSampleTimeMs(start), gesture.getAction(i),
+                    anchorLocation[0] + gesture.getSampleX(start) * scale,
+                    anchorLocation[1] + gesture.getSampleY(start) * scale, 0);
+            for (int sample = start + 1; sample <= last; sample++) {
+                event.addBatch(downTime + gesture.getSampleTimeMs(sample),
+                        anchorLocation[0] + gesture.getSampleX(sample) * scale,
+                        anchorLocation[1] + gesture.getSampleY(sample) * scale, 1f, 1f, 0);
+            }
+            // Make the coordinates relative to the anchor, keeping the raw ones on screen.
+            event.setLocation(gesture.getSampleX(last) * scale, gesture.getSampleY(last) * scale);
+
+            long logPosition = mHarness.getEventLogPosition();
+            long cpuStart = MenuTestHarness.getThreadCpuTimeNanos();
+            mHarness.dispatchTouch(event);
+            result.eventCpuTimeNanos[i] = MenuTestHarness.getThreadCpuTimeNanos() - cpuStart;
+            result.eventHighlightChanges[i] = mHarness.getEventCountSince(
+                    logPosition, AppMenuEventLog.EventType.HIGHLIGHT_CHANGED);
+            event.recycle();
+        }
+        mHarness.advanceFrames(1);
+        result.autoScrollFrames = mHarness.getTraceSectionCount(AppMenuTrace.AUTO_SCROLL_FRAME);
+        if (mHarness.getHandler().isAppMenuShowing()) mHarness.hide();
+        return result;
+    }
+}
@@ -0,0 +1,105 @@
+package xyz.aprildown.chromemenu;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Collects the results of the harness benchmarks and writes them as JSON, one object per scenario
+ * with the median of every metric over the measured runs, so that CI can track them over time.
+ * <p>
+ * Files go to the directory in the {@value #OUTPUT_DIR_PROPERTY} system property, or to
+ * {@code build/reports/menu-benchmarks}.
+ */
+final class MenuBenchmarkReport {
+    static final String OUTPUT_DIR_PROPERTY = "chromemenu.benchmarkDir";
+
+    private static final String DEFAULT_OUTPUT_DIR = "build/reports/menu-benchmarks";
+
+    private final List<String> mEntries = new ArrayList<>();
+
+    /**
+     * The metrics of one run. Every run of a scenario must record the same metrics.
+     */
+    static final class Run {
+        private final Map<String, Long> mMetrics = new LinkedHashMap<>();
+        private final Map<String, long[]> mSeries = new LinkedHashMap<>();
+
+        void put(String metric, long value) {
+            mMetrics.put(metric, value);
+        }
+
+        /**
+         * Adds values reported as an array, such as the time of every event. Only the series of
+         * the first run of a scenario are reported.
+         */
+        void putSeries(String metric, long[] values) {
+            mSeries.put(metric, values);
+        }
+    }
+
+    /**
+     * Adds a scenario.
+     *
+     * @param scenario The name of the menu shape or recording.
+     * @param phase    What was measured, for example "show" or "drag".
+     * @param runs     The measured runs.
+     */
+    void add(String scenario, String phase, List<Run> runs) {
+        StringBuilder entry = new StringBuilder();
+        entry.append("{\"scenario\":\"").append(escape(scenario))
+                .append("\",\"phase\":\"").append(escape(phase))
+                .append("\",\"runs\":").append(runs.size());
+        if (!runs.isEmpty()) {
+            for (String metric : runs.get(0).mMetrics.keySet()) {
+                long[] values = new long[runs.size()];
+                for (int i = 0; i < values.length; i++) {
+                    values[i] = runs.get(i).mMetrics.get(metric);
+                }
+                Arrays.sort(values);
+                entry.append(",\"").append(escape(metric)).append("\":")
+                        .append(values[values.length / 2]);
+            }
+            for (Map.Entry<String, long[]> series : runs.get(0).mSeries.entrySet()) {
+                entry.append(",\"").append(escape(series.getKey())).append("\":")
+                        .append(Arrays.toString(series.getValue()).replace(" ", ""));
+            }
+        }
+        entry.append('}');
+        mEntries.add(entry.toString());
+    }
+
+    /**
+     * Writes the scenarios added so far as a JSON array.
+     *
+     * @return The file written.
+     */
+    File write(String fileName) throws IOException {
+        File dir = new File(System.getProperty(OUTPUT_DIR_PROPERTY, DEFAULT_OUTPUT_DIR));
+        if (!dir.isDirectory() && !dir.mkdirs()) throw new IOException("Can't create " + dir);
+        File file = new File(dir, fileName);
+        Writer writer = new FileWriter(file);
+        try {
+            writer.write("[\n");
+            for (int i = 0; i < mEntries.size(); i++) {
+                writer.write("  ");
+                writer.write(mEntries.get(i));
+                writer.write(i < mEntries.size() - 1 ? ",\n" : "\n");
+            }
+            writer.write("]\n");
+        } finally {
+            writer.close();
+        }
+        return file;
+    }
+
+    private static String escape(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"");
+    }
+}
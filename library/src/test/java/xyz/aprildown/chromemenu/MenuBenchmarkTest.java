@@ -0,0 +1,132 @@
+package xyz.aprildown.chromemenu;
+
+import android.view.MotionEvent;
+import android.widget.ListView;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.annotation.LooperMode;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Measures showing and drag-selecting menus of several shapes on the JVM. The medians are written
+ * to {@code show.json} and {@code drag.json}, see {@link MenuBenchmarkReport}.
+ * <p>
+ * Times measured under Robolectric are only comparable with each other. Counts of inflations,
+ * binds and allocations are the most stable signals.
+ */
+@RunWith(RobolectricTestRunner.class)
+@LooperMode(LooperMode.Mode.PAUSED)
+@Config(sdk = 28)
+public class MenuBenchmarkTest {
+    static final MenuShape[] SHAPES = {
+            new MenuShape("small", 6, 0, false, false),
+            new MenuShape("mixed", 8, 2, true, true),
+            new MenuShape("long", 60, 1, true, false),
+    };
+
+    private static final int WARM_UP_RUNS = 3;
+    private static final int MEASURED_RUNS = 10;
+    /**
+     * A drag moves from the top to the bottom of the list in this many frames, then rests in the
+     * auto-scroll area at the bottom.
+     */
+    private static final int DRAG_MOVE_FRAMES = 30;
+    private static final int DRAG_AUTO_SCROLL_FRAMES = 30;
+
+    @Test
+    public void show() throws IOException {
+        MenuBenchmarkReport report = new MenuBenchmarkReport();
+        for (MenuShape shape : SHAPES) {
+            MenuTestHarness harness = new MenuTestHarness(shape);
+            List<MenuBenchmarkReport.Run> runs = new ArrayList<>();
+            for (int i = 0; i < WARM_UP_RUNS + MEASURED_RUNS; i++) {
+                harness.resetCounters();
+                long wallStart = System.nanoTime();
+                long cpuStart = MenuTestHarness.getThreadCpuTimeNanos();
+                long allocatedStart = MenuTestHarness.getThreadAllocatedBytes();
+                harness.show();
+                MenuBenchmarkReport.Run run = new MenuBenchmarkReport.Run();
+                run.put("wallTimeNanos", System.nanoTime() - wallStart);
+                run.put("cpuTimeNanos", MenuTestHarness.getThreadCpuTimeNanos() - cpuStart);
+                run.put("allocatedBytes",
+                        MenuTestHarness.getThreadAllocatedBytes() - allocatedStart);
+                run.put("inflatedViews", harness.getInflatedViews());
+                run.put("boundRows", harness.getBoundRows());
+                harness.hide();
+
+                assertTrue(shape + " bound no rows", harness.getBoundRows() > 0);
+                if (i >= WARM_UP_RUNS) runs.add(run);
+            }
+            report.add(shape.name, "show", runs);
+        }
+        report.write("show.json");
+    }
+
+    @Test
+    public void drag() throws IOException {
+        MenuBenchmarkReport report = new MenuBenchmarkReport();
+        for (MenuShape shape : SHAPES) {
+            MenuTestHarness harness = new MenuTestHarness(shape);
+            List<MenuBenchmarkReport.Run> runs = new ArrayList<>();
+            for (int i = 0; i < WARM_UP_RUNS + MEASURED_RUNS; i++) {
+                harness.resetCounters();
+                long wallStart = System.nanoTime();
+                long cpuStart = MenuTestHarness.getThreadCpuTimeNanos();
+                long allocatedStart = MenuTestHarness.getThreadAllocatedBytes();
+                replaySyntheticDrag(harness);
+                MenuBenchmarkReport.Run run = new MenuBenchmarkReport.Run();
+                run.put("wallTimeNanos", System.nanoTime() - wallStart);
+                run.put("cpuTimeNanos", MenuTestHarness.getThreadCpuTimeNanos() - cpuStart);
+                run.put("allocatedBytes",
+                        MenuTestHarness.getThreadAllocatedBytes() - allocatedStart);
+                run.put("inflatedViews", harness.getInflatedViews());
+                run.put("boundRows", harness.getBoundRows());
+                run.put("highlightChanges", harness.getEventCountOfLastSession(
+                        AppMenuEventLog.EventType.HIGHLIGHT_CHANGED));
+                run.put("autoScrollFrames",
+                        harness.getTraceSectionCount(AppMenuTrace.AUTO_SCROLL_FRAME));
+                if (harness.getHandler().isAppMenuShowing()) harness.hide();
+
+                if (i >= WARM_UP_RUNS) runs.add(run);
+            }
+            report.add(shape.name, "drag", runs);
+        }
+        report.write("drag.json");
+    }
+
+    /**
+     * Presses the anchor, which shows the menu, drags down the list at one touch event per frame,
+     * rests at the bottom and releases.
+     */
+    private static void replaySyntheticDrag(MenuTestHarness harness) {
+        harness.touchDown();
+        ListView listView = harness.getListView();
+        int[] location = new int[2];
+        listView.getLocationOnScreen(location);
+        float x = location[0] + listView.getWidth() / 2f;
+        float top = location[1];
+        float bottom = location[1] + listView.getHeight() - 1;
+
+        float y = top;
+        for (int frame = 1; frame <= DRAG_MOVE_FRAMES; frame++) {
+            harness.advanceFrames(1);
+            y = top + (bottom - top) * frame / DRAG_MOVE_FRAMES;
+            harness.dispatchTouch(MotionEvent.ACTION_MOVE, x, y);
+        }
+        for (int frame = 0; frame < DRAG_AUTO_SCROLL_FRAMES; frame++) {
+            harness.advanceFrames(1);
+            harness.dispatchTouch(MotionEvent.ACTION_MOVE, x, y);
+        }
+        harness.advanceFrames(1);
+        harness.dispatchTouch(MotionEvent.ACTION_UP, x, y);
+        harness.advanceFrames(1);
+    }
+}
@@ -0,0 +1,62 @@
+package xyz.aprildown.chromemenu;
+
+import android.view.Menu;
+import android.view.MenuItem;
+import android.view.SubMenu;
+
+/**
+ * The rows of a menu built by the test harness: standard rows, rows of four icon buttons and an
+ * optional header and footer.
+ */
+final class MenuShape {
+    static final int ICONS_PER_ROW = 4;
+
+    private static final int[] ICONS = {
+            android.R.drawable.ic_menu_add, android.R.drawable.ic_menu_delete,
+            android.R.drawable.ic_menu_edit, android.R.drawable.ic_menu_share,
+    };
+
+    final String name;
+    final int standardRows;
+    final int iconRows;
+    final boolean hasHeader;
+    final boolean hasFooter;
+
+    MenuShape(String name, int standardRows, int iconRows, boolean hasHeader,
+              boolean hasFooter) {
+        this.name = name;
+        this.standardRows = standardRows;
+        this.iconRows = iconRows;
+        this.hasHeader = hasHeader;
+        this.hasFooter = hasFooter;
+    }
+
+    /**
+     * @return The number of rows of the list, without the header.
+     */
+    int getRowCount() {
+        return standardRows + iconRows;
+    }
+
+    /**
+     * Adds the rows to an empty menu, icon rows first like the menus of browsers.
+     */
+    void populate(Menu menu) {
+        int id = 1;
+        for (int i = 0; i < iconRows; i++) {
+            SubMenu row = menu.addSubMenu(Menu.NONE, id++, Menu.NONE, "Icons " + i);
+            for (int j = 0; j < ICONS_PER_ROW; j++) {
+                MenuItem icon = row.add(Menu.NONE, id++, Menu.NONE, "Icon " + i + "." + j);
+                icon.setIcon(ICONS[j % ICONS.length]);
+            }
+        }
+        for (int i = 0; i < standardRows; i++) {
+            menu.add(Menu.NONE, id++, Menu.NONE, "Item " + i);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
@@ -0,0 +1,283 @@
+package xyz.aprildown.chromemenu;
+
+import android.app.Activity;
+import android.content.Context;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.AttributeSet;
+import android.view.Gravity;
+import android.view.LayoutInflater;
+import android.view.Menu;
+import android.view.MenuItem;
+import android.view.MotionEvent;
+import android.view.View;
+import android.widget.FrameLayout;
+import android.widget.ListView;
+
+import org.robolectric.Robolectric;
+import org.robolectric.shadows.ShadowTrace;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.concurrent.TimeUnit;
+
+import androidx.annotation.NonNull;
+
+import static org.robolectric.Shadows.shadowOf;
+
+/**
+ * Hosts an App Menu of a given {@link MenuShape} in a Robolectric activity. Tests using it must
+ * run with {@code @LooperMode(PAUSED)}, so that {@link SystemClock} and the main looper only move
+ * when the harness advances them frame by frame, and runs are deterministic.
+ * <p>
+ * The harness counts the views inflated and the rows bound by the adapter, and measures the CPU
+ * time and the bytes allocated by the current thread.
+ */
+final class MenuTestHarness {
+    static final long FRAME_MS = 16;
+
+    private static final int ANCHOR_SIZE_PX = 144;
+
+    private final Activity mActivity;
+    private final View mAnchor;
+    private final AppMenuHandler mHandler;
+    private final AppMenuButtonHelper mButtonHelper;
+    private int mInflatedViews;
+    private long mDownTime;
+
+    MenuTestHarness(final MenuShape shape) {
+        mActivity = Robolectric.buildActivity(Activity.class).setup().get();
+        LayoutInflater.from(mActivity).setFactory2(new LayoutInflater.Factory2() {
+            @Override
+            public View onCreateView(View parent, String name, Context context,
+                                     AttributeSet attrs) {
+                mInflatedViews++;
+                return null;
+            }
+
+            @Override
+            public View onCreateView(String name, Context context, AttributeSet attrs) {
+                return onCreateView(null, name, context, attrs);
+            }
+        });
+
+        FrameLayout root = new FrameLayout(mActivity);
+        mAnchor = new View(mActivity);
+        root.addView(mAnchor, new FrameLayout.LayoutParams(
+                ANCHOR_SIZE_PX, ANCHOR_SIZE_PX, Gravity.TOP | Gravity.END));
+        mActivity.setContentView(root);
+
+        mHandler = new AppMenuHandler(mActivity, new AbstractAppMenuPropertiesDelegate() {
+            @Override
+            public void prepareMenu(@NonNull Menu menu) {
+                if (menu.size() == 0) shape.populate(menu);
+            }
+
+            @Override
+            public boolean shouldShowHeader(int maxMenuHeight) {
+                return shape.hasHeader;
+            }
+
+            @Override
+            public int getHeaderResourceId() {
+                return android.R.layout.simple_list_item_1;
+            }
+
+            @Override
+            public boolean shouldShowFooter(int maxMenuHeight) {
+                return shape.hasFooter;
+            }
+
+            @Override
+            public int getFooterResourceId() {
+                return android.R.layout.simple_list_item_1;
+            }
+
+            @Override
+            public void onMenuItemClicked(@NonNull MenuItem item) {
+            }
+        }, 0);
+        // Detecting the tier and adapting the quality would make runs depend on each other.
+        mHandler.setDeviceTierProvider(new DeviceTierProvider() {
+            @Override
+            public int getDeviceTier() {
+                return DeviceTier.MID;
+            }
+
+            @NonNull
+            @Override
+            public AppMenuFeatureProfile getFeatureProfile(int tier) {
+                return new AppMenuFeatureProfile.Builder().build();
+            }
+        });
+        mHandler.setAdaptiveQualityEnabled(false);
+        mButtonHelper = new AppMenuButtonHelper(mHandler);
+        advanceFrames(1);
+    }
+
+    AppMenuHandler getHandler() {
+        return mHandler;
+    }
+
+    View getAnchor() {
+        return mAnchor;
+    }
+
+    ListView getListView() {
+        return mHandler.getAppMenu() != null ? mHandler.getAppMenu().getListView() : null;
+    }
+
+    /**
+     * Shows the menu by tapping the anchor and lets it lay out.
+     */
+    void show() {
+        mHandler.showAppMenu(mAnchor, false, false, SystemClock.uptimeMillis());
+        advanceFrames(1);
+    }
+
+    void hide() {
+        mHandler.hideAppMenu();
+        advanceFrames(1);
+    }
+
+    /**
+     * Runs the main looper and moves the clock forward by {@code count} frames.
+     */
+    void advanceFrames(int count) {
+        advanceTime(count * FRAME_MS);
+    }
+
+    /**
+     * Runs the main looper and moves the clock forward by {@code millis}.
+     */
+    void advanceTime(long millis) {
+        shadowOf(Looper.getMainLooper()).idleFor(millis, TimeUnit.MILLISECONDS);
+    }
+
+    float getDensity() {
+        return mActivity.getResources().getDisplayMetrics().density;
+    }
+
+    /**
+     * Starts a drag on the anchor, which shows the menu, and lets the menu lay out.
+     */
+    void touchDown() {
+        mDownTime = SystemClock.uptimeMillis();
+        int[] location = new int[2];
+        mAnchor.getLocationOnScreen(location);
+        float x = location[0] + mAnchor.getWidth() / 2f;
+        float y = location[1] + mAnchor.getHeight() / 2f;
+        dispatchTouch(MotionEvent.ACTION_DOWN, x, y);
+        advanceFrames(1);
+    }
+
+    /**
+     * Sends a touch event of the current drag at a screen position, as the anchor receives it.
+     */
+    void dispatchTouch(int action, float rawX, float rawY) {
+        MotionEvent event = MotionEvent.obtain(
+                mDownTime, SystemClock.uptimeMillis(), action, rawX, rawY, 0);
+        int[] location = new int[2];
+        mAnchor.getLocationOnScreen(location);
+        event.setLocation(rawX - location[0], rawY - location[1]);
+        dispatchTouch(event);
+        event.recycle();
+    }
+
+    /**
+     * Sends a touch event to the anchor. Its location must be relative to the anchor.
+     */
+    void dispatchTouch(MotionEvent event) {
+        mButtonHelper.onTouch(mAnchor, event);
+    }
+
+    /**
+     * Clears the counters of {@link #getInflatedViews()}, {@link #getBoundRows()} and
+     * {@link #getTraceSectionCount(String)}.
+     */
+    void resetCounters() {
+        mInflatedViews = 0;
+        ShadowTrace.reset();
+    }
+
+    /**
+     * @return The number of views inflated from XML since {@link #resetCounters()}.
+     */
+    int getInflatedViews() {
+        return mInflatedViews;
+    }
+
+    /**
+     * @return The number of rows bound by the adapter since {@link #resetCounters()}.
+     */
+    int getBoundRows() {
+        return getTraceSectionCount(AppMenuTrace.BIND_ROW);
+    }
+
+    /**
+     * @return How many times the {@link AppMenuTrace} section has finished since
+     * {@link #resetCounters()}.
+     */
+    int getTraceSectionCount(String sectionName) {
+        int count = 0;
+        for (String section : ShadowTrace.getPreviousSections()) {
+            if (sectionName.equals(section)) count++;
+        }
+        return count;
+    }
+
+    /**
+     * @return The number of events of {@code type} in the event log since the last time the menu
+     * was requested.
+     */
+    int getEventCountOfLastSession(@AppMenuEventLog.EventType int type) {
+        long[] events = mHandler.getMetricsRecorder().getEventLog().snapshot();
+        int count = 0;
+        for (int i = events.length / 2 - 1; i >= 0; i--) {
+            int eventType = AppMenuEventLogDecoder.getType(events, i);
+            if (eventType == AppMenuEventLog.EventType.SHOW_REQUESTED) break;
+            if (eventType == type) count++;
+        }
+        return count;
+    }
+
+    /**
+     * @return The position in the event log to pass to {@link #getEventCountSince(long, int)}.
+     */
+    long getEventLogPosition() {
+        return mHandler.getMetricsRecorder().getEventLog().getWriteCount();
+    }
+
+    /**
+     * @return The number of events of {@code type} logged since {@code position}, which must not
+     * be older than the capacity of the log.
+     */
+    int getEventCountSince(long position, @AppMenuEventLog.EventType int type) {
+        AppMenuEventLog log = mHandler.getMetricsRecorder().getEventLog();
+        long[] events = log.snapshot();
+        int newEvents = (int) Math.min(log.getWriteCount() - position, events.length / 2);
+        int count = 0;
+        for (int i = events.length / 2 - newEvents; i < events.length / 2; i++) {
+            if (AppMenuEventLogDecoder.getType(events, i) == type) count++;
+        }
+        return count;
+    }
+
+    /**
+     * @return The CPU time used by the current thread so far.
+     */
+    static long getThreadCpuTimeNanos() {
+        return ManagementFactory.getThreadMXBean().getCurrentThreadCpuTime();
+    }
+
+    /**
+     * @return The bytes allocated by the current thread so far, or -1 if the JVM doesn't tell.
+     */
+    static long getThreadAllocatedBytes() {
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (!(bean instanceof com.sun.management.ThreadMXBean)) return -1;
+        com.sun.management.ThreadMXBean sunBean = (com.sun.management.ThreadMXBean) bean;
+        if (!sunBean.isThreadAllocatedMemorySupported()) return -1;
+        return sunBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+}
@@ -0,0 +1,63 @@
+#!/usr/bin/env bash
+# Regenerates library/src/main/baseline-prof.txt from the profile ART records while the sample
+# app runs ProfileScenario. Needs a device or emulator where `adb root` works (a userdebug build
+# or an emulator image without Google Play) running Android 9 or later.
+#
+# The checked-in profile lists whole classes. The generated one lists the exact methods run by
+# the scenario; review the diff before committing it. The profile isn't packaged into the AAR
+# until the project builds with Android Gradle Plugin 7.1 or later.
+set -euo pipefail
+
+PACKAGE=xyz.aprildown.chromemenu.app
+ACTIVITY=$PACKAGE/xyz.aprildown.chromemenu.app.MainActivity
+EXTRA=xyz.aprildown.chromemenu.app.extra.RUN_PROFILE_SCENARIO
+DONE_LOG="Profile scenario done"
+ROOT_DIR=$(cd "$(dirname "$0")/.." && pwd)
+OUTPUT=$ROOT_DIR/library/src/main/baseline-prof.txt
+
+"$ROOT_DIR/gradlew" -p "$ROOT_DIR" :app:installDebug
+
+adb root > /dev/null
+adb wait-for-device
+adb shell am force-stop $PACKAGE
+# Start from an empty profile so only the scenario is recorded.
+adb shell cmd package compile --reset $PACKAGE > /dev/null
+adb logcat -c
+
+adb shell am start -W -n $ACTIVITY --ez $EXTRA true > /dev/null
+echo "Waiting for the scenario to finish..."
+until adb logcat -d -s ProfileScenario:I | grep -q "$DONE_LOG"; do
+    sleep 1
+done
+
+# Ask ART to write the profile of the running process, then dump its classes and methods as
+# text. `cmd package dump-profiles` only has a flag for that from Android 13 on; before that,
+# profman is run directly against the installed APK.
+adb shell killall -s SIGUSR1 $PACKAGE
+sleep 2
+RAW=$(mktemp)
+RULES=$(mktemp)
+trap 'rm -f "$RAW" "$RULES"' EXIT
+SDK=$(adb shell getprop ro.build.version.sdk | tr -d '\r')
+if [ "$SDK" -ge 33 ]; then
+    adb shell cmd package dump-profiles --dump-classes-and-methods $PACKAGE
+    adb shell cat /data/misc/profman/$PACKAGE-primary.prof.txt > "$RAW"
+else
+    APK=$(adb shell pm path $PACKAGE | tr -d '\r' | grep 'base.apk$' | sed 's/^package://')
+    adb shell profman --dump-classes-and-methods \
+        --profile-file=/data/misc/profiles/cur/0/$PACKAGE/primary.prof \
+        --apk="$APK" --dex-location="$APK" > "$RAW"
+fi
+
+tr -d '\r' < "$RAW" \
+    | grep 'xyz/aprildown/chromemenu/' \
+    | grep -v 'xyz/aprildown/chromemenu/app/' \
+    | sort -u > "$RULES" || true
+
+# Keep the checked-in profile if nothing usable came out.
+if [ ! -s "$RULES" ]; then
+    echo "The profile has no library classes or methods, $OUTPUT is unchanged" >&2
+    exit 1
+fi
+cat "$RULES" > "$OUTPUT"
+echo "Wrote $(wc -l < "$OUTPUT") rules to $OUTPUT"